@@ -0,0 +1,412 @@
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+
+/**
+ * A red black tree that stores its nodes in parallel arrays
+ * instead of one object per node. A node is just an index into
+ * the arrays, the links are int indices, the colors are packed
+ * into a bitset and deleted slots are reused through a free list
+ *
+ * Has the same public methods as RedBlackTree so either one
+ * can be created through OrderedSymbolTable.create()
+ *
+ * Based on RedBlackTree which was taken from
+ * https://algs4.cs.princeton.edu/code/edu/princeton/cs/algs4/RedBlackBST.java.html
+ *
+ * @author Bryce Lehnen
+ */
+public class ArrayRedBlackTree<Key extends Comparable<Key>, Value> implements OrderedSymbolTable<Key, Value> {
+
+	private static final int NIL = -1;				// Index used as the null link
+	private static final int INITIAL_CAPACITY = 16;
+
+	// Node storage, node x is keys[x], vals[x], left[x], ...
+	private Object[] keys;
+	private Object[] vals;
+	private int[] left, right;	// Links to children
+	private int[] size;			// Subtree count
+	private long[] red;			// Color of parent link, 1 bit per node
+
+	private int root = NIL;
+	private int free = NIL;		// Head of the free list, chained through left[]
+	private int used;			// Number of slots that have ever been handed out
+
+	/**
+	 * Creates a blank tree
+	 */
+	public ArrayRedBlackTree() {
+		this(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * Creates a blank tree with room for the given number
+	 * of nodes before the arrays need to grow
+	 */
+	public ArrayRedBlackTree(int capacity) {
+		if (capacity < 1) capacity = 1;
+		keys = new Object[capacity];
+		vals = new Object[capacity];
+		left = new int[capacity];
+		right = new int[capacity];
+		size = new int[capacity];
+		red = new long[(capacity + 63) >>> 6];
+	}
+
+	/**
+	 * Node storage helpers
+	 */
+	// Returns a slot for a new red node, from the free list if possible
+	private int NewNode(Key key, Value val) {
+		int x;
+		if (free != NIL) {
+			x = free;
+			free = left[x];
+		}
+		else {
+			if (used == keys.length) {
+				Grow();
+			}
+			x = used++;
+		}
+		keys[x] = key;
+		vals[x] = val;
+		left[x] = NIL;
+		right[x] = NIL;
+		size[x] = 1;
+		SetRed(x, true);
+		return x;
+	}
+	// Puts a slot back onto the free list
+	private void Release(int x) {
+		keys[x] = null;
+		vals[x] = null;
+		left[x] = free;
+		free = x;
+	}
+	// Doubles the capacity of every array
+	private void Grow() {
+		int capacity = keys.length * 2;
+		keys = Arrays.copyOf(keys, capacity);
+		vals = Arrays.copyOf(vals, capacity);
+		left = Arrays.copyOf(left, capacity);
+		right = Arrays.copyOf(right, capacity);
+		size = Arrays.copyOf(size, capacity);
+		red = Arrays.copyOf(red, (capacity + 63) >>> 6);
+	}
+	@SuppressWarnings("unchecked")
+	private Key Key(int x) {
+		return (Key) keys[x];
+	}
+	@SuppressWarnings("unchecked")
+	private Value Val(int x) {
+		return (Value) vals[x];
+	}
+	private void SetRed(int x, boolean isRed) {
+		if (isRed) {
+			red[x >>> 6] |= 1L << x;
+		}
+		else {
+			red[x >>> 6] &= ~(1L << x);
+		}
+	}
+
+	/**
+	 * Helper methods
+	 */
+	// True if x is red, false if x is black
+	private boolean IsRed(int x) {
+		if (x == NIL) return false;
+		return (red[x >>> 6] & (1L << x)) != 0;
+	}
+	// Number of nodes in a subtree rooted at x; 0 if x is null
+	private int Size(int x) {
+		if (x == NIL) return 0;
+		return size[x];
+	}
+	// Returns the size of the entire tree
+	public int size() {
+		return Size(root);
+	}
+	// Checks if the tree is empty
+	public boolean IsEmpty() {
+		return root == NIL;
+	}
+
+	/**
+	 * Inserts the key/value pair
+	 * Will overwrite the value if the key already exists
+	 */
+	public void insert(Key key, Value val) {
+		if (key == null) throw new IllegalArgumentException("first argument to put() is null");
+		if (val == null) {
+			delete(key);
+			return;
+		}
+
+		root = Insert(root, key, val);
+		SetRed(root, false);
+	}
+	private int Insert(int h, Key key, Value val) {
+		// Placed new node
+		if (h == NIL) {
+			return NewNode(key, val);
+		}
+
+		// The child is stored after the call returns because
+		// the call may grow (and so replace) the arrays
+		int cmp = key.compareTo(Key(h));
+		if (cmp < 0) {
+			int x = Insert(left[h], key, val);
+			left[h] = x;
+		}
+		else if (cmp > 0) {
+			int x = Insert(right[h], key, val);
+			right[h] = x;
+		}
+		else {
+			vals[h] = val;
+		}
+
+		return Balance(h);
+	}
+
+	/**
+	 * Helper functions to rotate the tree keeping
+	 * it in balance, see RedBlackTree
+	 */
+	private int RotateLeft(int h) {
+		int x = right[h];
+		right[h] = left[x];
+		left[x] = h;
+		SetRed(x, IsRed(h));
+		SetRed(h, true);
+		size[x] = size[h];
+		size[h] = Size(left[h]) + Size(right[h]) + 1;
+
+		return x;
+	}
+	private int RotateRight(int h) {
+		int x = left[h];
+		left[h] = right[x];
+		right[x] = h;
+		SetRed(x, IsRed(h));
+		SetRed(h, true);
+		size[x] = size[h];
+		size[h] = Size(left[h]) + Size(right[h]) + 1;
+
+		return x;
+	}
+	private void FlipColors(int h) {
+		red[h >>> 6] ^= 1L << h;
+		red[left[h] >>> 6] ^= 1L << left[h];
+		red[right[h] >>> 6] ^= 1L << right[h];
+	}
+
+	/**
+	 * Deletes the given key if it is in the tree
+	 */
+	public void delete(Key key) {
+		if (key == null) throw new IllegalArgumentException("argument to delete() is null");
+		if (!Contains(key)) return;
+
+		// If both children are black, set root to red
+		if (!IsRed(left[root]) && !IsRed(right[root])) {
+			SetRed(root, true);
+		}
+
+		root = Delete(root, key);
+		if (!IsEmpty()) {
+			SetRed(root, false);
+		}
+	}
+	private int Delete(int h, Key key) {
+		if (key.compareTo(Key(h)) < 0) {
+			if (!IsRed(left[h]) && !IsRed(left[left[h]])) {
+				h = MoveRedLeft(h);
+			}
+			left[h] = Delete(left[h], key);
+		}
+		else {
+			if (IsRed(left[h])) {
+				h = RotateRight(h);
+			}
+			if (key.compareTo(Key(h)) == 0 && (right[h] == NIL)) {
+				Release(h);
+				return NIL;
+			}
+			if (!IsRed(right[h]) && !IsRed(left[right[h]])) {
+				h = MoveRedRight(h);
+			}
+			if (key.compareTo(Key(h)) == 0) {
+				int x = Min(right[h]);
+				keys[h] = keys[x];
+				vals[h] = vals[x];
+				right[h] = DeleteMin(right[h]);
+			}
+			else {
+				right[h] = Delete(right[h], key);
+			}
+		}
+		return Balance(h);
+	}
+
+	/**
+	 * Helper functions for the delete
+	 */
+	private int MoveRedLeft(int h) {
+		FlipColors(h);
+		if (IsRed(left[right[h]])) {
+			right[h] = RotateRight(right[h]);
+			h = RotateLeft(h);
+			FlipColors(h);
+		}
+		return h;
+	}
+	private int MoveRedRight(int h) {
+		FlipColors(h);
+		if (IsRed(left[left[h]])) {
+			h = RotateRight(h);
+			FlipColors(h);
+		}
+		return h;
+	}
+
+	/**
+	 * Deletes the minimum of the tree
+	 */
+	public void deleteMin() {
+		if (IsEmpty()) throw new NoSuchElementException("BST underflow");
+
+		// If both children are black, sets root to red
+		if (!IsRed(left[root]) && !IsRed(right[root])) {
+			SetRed(root, true);
+		}
+
+		root = DeleteMin(root);
+		if (!IsEmpty()) {
+			SetRed(root, false);
+		}
+	}
+	private int DeleteMin(int h) {
+		if (left[h] == NIL) {
+			Release(h);
+			return NIL;
+		}
+		if (!IsRed(left[h]) && !IsRed(left[left[h]])) {
+			h = MoveRedLeft(h);
+		}
+
+		left[h] = DeleteMin(left[h]);
+		return Balance(h);
+	}
+
+	/**
+	 * Balances the tree with RotateLeft, RotateRight, and FlipColors
+	 */
+	private int Balance(int h) {
+		if (IsRed(right[h]) && !IsRed(left[h])) {
+			h = RotateLeft(h);
+		}
+		if (IsRed(left[h]) && IsRed(left[left[h]])) {
+			h = RotateRight(h);
+		}
+		if (IsRed(left[h]) && IsRed(right[h])) {
+			FlipColors(h);
+		}
+
+		size[h] = Size(left[h]) + Size(right[h]) + 1;
+		return h;
+	}
+
+	/**
+	 * Returns the value for the given key or null
+	 * if the key is not in the tree
+	 */
+	public Value get(Key key) {
+		if (key == null) throw new IllegalArgumentException("argument to get() is null");
+		int x = root;
+		while (x != NIL) {
+			int cmp = key.compareTo(Key(x));
+			if (cmp < 0) {
+				x = left[x];
+			}
+			else if (cmp > 0) {
+				x = right[x];
+			}
+			else {
+				return Val(x);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns true if the key is in the tree
+	 */
+	public boolean Contains(Key key) {
+		return get(key) != null;
+	}
+
+	/**
+	 * Returns the minimum key
+	 */
+	public Key min() {
+		if (IsEmpty()) throw new NoSuchElementException("calls min() with empty symbol table");
+		return Key(Min(root));
+	}
+	private int Min(int x) {
+		while (left[x] != NIL) {
+			x = left[x];
+		}
+		return x;
+	}
+
+	/**
+	 * Returns the maximum key
+	 */
+	public Key max() {
+		if (IsEmpty()) throw new NoSuchElementException("calls max() with empty symbol table");
+		int x = root;
+		while (right[x] != NIL) {
+			x = right[x];
+		}
+		return Key(x);
+	}
+
+	/**
+	 * Returns all the keys in the tree
+	 */
+	public Iterable<Key> keys() {
+		if (IsEmpty()) return new LinkedList<Key>();
+		return keys(min(), max());
+	}
+
+	/**
+	 * Returns all the keys in a given range
+	 */
+	public Iterable<Key> keys(Key lo, Key hi) {
+		if (lo == null) throw new IllegalArgumentException("first argument to keys() is null");
+		if (hi == null) throw new IllegalArgumentException("second argument to keys() is null");
+
+		Queue<Key> queue = new LinkedList<>();
+		Keys(root, queue, lo, hi);
+		return queue;
+	}
+	private void Keys(int x, Queue<Key> queue, Key lo, Key hi) {
+		if (x == NIL) return;
+		int cmplo = lo.compareTo(Key(x));
+		int cmphi = hi.compareTo(Key(x));
+
+		if (cmplo < 0) {
+			Keys(left[x], queue, lo, hi);
+		}
+		if (cmplo <= 0 && cmphi >= 0) {
+			queue.add(Key(x));
+		}
+		if (cmphi > 0) {
+			Keys(right[x], queue, lo, hi);
+		}
+	}
+}
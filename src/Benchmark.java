@@ -0,0 +1,363 @@
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * Benchmarks the trees and the .csv loading so changes can be
+ * compared from one release to the next
+ *
+ * - insert, get, delete and range scans on RedBlackTree and on
+ *   java.util.TreeMap, with random and with sorted keys
+ * - parsing the .csv file of every registered Dataset, streamed and memory mapped
+ * - loading them into the trees the same way Driver does
+ * - the same on a generated file of any size (-synthetic)
+ *
+ * Every case is run a few times to warm up the JIT before it is
+ * measured. The results are printed and written as JSON
+ *
+ * Usage: java -Xmx4g Benchmark [-sizes 10000,100000,1000000]
+ *        [-synthetic megabytes] [-out benchmark.json]
+ *
+ * @author Bryce Lehnen
+ */
+public class Benchmark {
+
+	private static final String WORLD = Dataset.WORLD;
+	private static final int WARMUPS = 2;
+	private static final int RUNS = 5;
+	private static final int RANGES = 1000;		// Range scans per run
+	private static final int RANGE_WIDTH = 100;	// Keys per range scan
+
+	private static List<Result> results = new ArrayList<Result>();
+
+	/**
+	 * One measured case
+	 */
+	private static class Result {
+		private final String group, subject, op;
+		private final long size;
+		private final double mean, best;	// Nanoseconds per unit
+		private final String unit;
+
+		private Result(String group, String subject, String op, long size, double mean, double best, String unit) {
+			this.group = group;
+			this.subject = subject;
+			this.op = op;
+			this.size = size;
+			this.mean = mean;
+			this.best = best;
+			this.unit = unit;
+		}
+	}
+
+	/**
+	 * The operations timed on both RedBlackTree and TreeMap
+	 */
+	private interface Subject {
+		void insert(Integer key);
+		Integer get(Integer key);
+		void delete(Integer key);
+		long range(Integer lo, Integer hi);
+	}
+
+	/**
+	 * A task that is timed, returns something so the JIT
+	 * can not throw the work away
+	 */
+	private interface Task {
+		long run() throws IOException;
+	}
+
+	/**
+	 * @param args -sizes a,b,c the tree sizes, 10000,100000,1000000 by default
+	 *             -synthetic n to also generate and load an n megabyte file
+	 *             -out file where the JSON goes, benchmark.json by default
+	 */
+	public static void main(String[] args) throws IOException {
+		int[] sizes = {10000, 100000, 1000000};
+		long synthetic = 0;
+		String out = "benchmark.json";
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-sizes") && i + 1 < args.length) {
+				String[] parts = args[++i].split(",");
+				sizes = new int[parts.length];
+				for (int j = 0; j < parts.length; j++) {
+					sizes[j] = Integer.parseInt(parts[j].trim());
+				}
+			}
+			else if (args[i].equals("-synthetic") && i + 1 < args.length) {
+				synthetic = Long.parseLong(args[++i]);
+			}
+			else if (args[i].equals("-out") && i + 1 < args.length) {
+				out = args[++i];
+			}
+		}
+
+		for (int n : sizes) {
+			for (boolean sorted : new boolean[] {false, true}) {
+				Integer[] keys = Keys(n, sorted);
+				String group = sorted ? "sorted keys" : "random keys";
+				Trees(group, "RedBlackTree", keys);
+				Trees(group, "TreeMap", keys);
+			}
+		}
+
+		for (Dataset dataset : Dataset.all()) {
+			if (new File(dataset.filename()).exists()) {
+				Files(dataset, dataset.filename());
+			}
+			else {
+				System.err.println("skipping " + dataset.filename() + ", not found");
+			}
+		}
+
+		if (synthetic > 0) {
+			File file = File.createTempFile("synthetic", ".csv");
+			try {
+				Generate(file, synthetic << 20);
+				Files(new Dataset("synthetic", file.getPath(), WORLD, 2, 3, value -> value,
+						"synthetic reading", "synthetic reading"), "synthetic " + synthetic + "MB");
+			}
+			finally {
+				file.delete();
+			}
+		}
+
+		Write(out);
+		System.out.println("Results written to " + out);
+	}
+
+	/**
+	 * Times insert, get, range and delete with the given keys.
+	 * Every run starts from an empty table
+	 */
+	private static void Trees(String group, String name, Integer[] keys) {
+		int n = keys.length;
+		Integer[] lookups = Keys(n, false);
+		Random random = new Random(7);
+		int[] starts = new int[RANGES];
+		for (int i = 0; i < RANGES; i++) {
+			starts[i] = random.nextInt(n);
+		}
+
+		double[][] times = new double[4][RUNS];
+		for (int run = 0; run < WARMUPS + RUNS; run++) {
+			Subject table = name.equals("TreeMap") ? NewTreeMap() : NewRedBlackTree();
+			long sink = 0;
+
+			long start = System.nanoTime();
+			for (int i = 0; i < n; i++) {
+				table.insert(keys[i]);
+			}
+			long inserted = System.nanoTime();
+			for (int i = 0; i < n; i++) {
+				sink += table.get(lookups[i]);
+			}
+			long searched = System.nanoTime();
+			for (int i = 0; i < RANGES; i++) {
+				sink += table.range(starts[i], starts[i] + RANGE_WIDTH - 1);
+			}
+			long scanned = System.nanoTime();
+			for (int i = 0; i < n; i++) {
+				table.delete(lookups[i]);
+			}
+			long deleted = System.nanoTime();
+
+			if (sink == 42) System.out.print("");
+			if (run >= WARMUPS) {
+				int r = run - WARMUPS;
+				times[0][r] = (double) (inserted - start) / n;
+				times[1][r] = (double) (searched - inserted) / n;
+				times[2][r] = (double) (scanned - searched) / RANGES;
+				times[3][r] = (double) (deleted - scanned) / n;
+			}
+		}
+
+		String[] ops = {"insert", "get", "range", "delete"};
+		for (int i = 0; i < ops.length; i++) {
+			Add(group, name, ops[i], n, times[i], "ns/op");
+		}
+	}
+
+	/**
+	 * Times parsing the dataset's file streamed and memory mapped,
+	 * and loading it with LoadedDataset the same way Driver does
+	 */
+	private static void Files(Dataset dataset, String name) throws IOException {
+		String filename = dataset.filename();
+		long length = new File(filename).length();
+
+		for (boolean mapped : new boolean[] {false, true}) {
+			Time("csv", name, mapped ? "parse mmap" : "parse", length, () -> {
+				long[] rows = new long[1];
+				CsvReader.readSeries(filename, mapped, dataset.entity(), dataset.dateColumn(),
+						dataset.valueColumn(), (day, value) -> rows[0]++);
+				return rows[0];
+			});
+		}
+
+		Time("csv", name, "load", length, () -> {
+			LoadedDataset loaded = new LoadedDataset(dataset);
+			loaded.read(false, 0, Long.MAX_VALUE, 1);
+			return loaded.byDate().size();
+		});
+	}
+
+	// Runs the task and records the time per megabyte of the file
+	private static void Time(String group, String name, String op, long bytes, Task task) throws IOException {
+		double megabytes = Math.max(1, bytes) / (double) (1 << 20);
+		double[] times = new double[RUNS];
+		for (int run = 0; run < WARMUPS + RUNS; run++) {
+			long start = System.nanoTime();
+			long sink = task.run();
+			long end = System.nanoTime();
+			if (sink == -1) System.out.print("");
+			if (run >= WARMUPS) {
+				times[run - WARMUPS] = (end - start) / megabytes;
+			}
+		}
+		Add(group, name, op, bytes, times, "ns/MB");
+	}
+
+	// Records and prints one case
+	private static void Add(String group, String subject, String op, long size, double[] times, String unit) {
+		double sum = 0;
+		double best = Double.MAX_VALUE;
+		for (double time : times) {
+			sum += time;
+			best = Math.min(best, time);
+		}
+		Result result = new Result(group, subject, op, size, sum / times.length, best, unit);
+		results.add(result);
+		System.out.printf("%-12s %-24s %-10s %12d: mean %12.1f, best %12.1f %s%n",
+				group, subject, op, size, result.mean, result.best, unit);
+	}
+
+	/**
+	 * Writes the results as one JSON object
+	 */
+	private static void Write(String filename) throws IOException {
+		try (PrintWriter out = new PrintWriter(filename, "UTF-8")) {
+			out.println("{");
+			out.println("  \"date\": \"" + Instant.now() + "\",");
+			out.println("  \"java\": \"" + System.getProperty("java.version") + "\",");
+			out.println("  \"processors\": " + Runtime.getRuntime().availableProcessors() + ",");
+			out.println("  \"results\": [");
+			for (int i = 0; i < results.size(); i++) {
+				Result r = results.get(i);
+				out.printf("    {\"group\": \"%s\", \"subject\": \"%s\", \"op\": \"%s\", \"size\": %d, "
+						+ "\"mean\": %.1f, \"best\": %.1f, \"unit\": \"%s\"}%s%n",
+						r.group, r.subject, r.op, r.size, r.mean, r.best, r.unit,
+						i + 1 < results.size() ? "," : "");
+			}
+			out.println("  ]");
+			out.println("}");
+		}
+	}
+
+	/**
+	 * Writes a .csv file laid out like temperature_anomaly.csv until it
+	 * reaches the given size. One row in four is a world row and each
+	 * world row is one day later than the last so every date is new
+	 */
+	private static void Generate(File file, long bytes) throws IOException {
+		String[] entities = {WORLD, "Northern Hemisphere", "Southern Hemisphere", "Tropics"};
+		Random random = new Random(232);
+		StringBuilder line = new StringBuilder();
+		long written = 0;
+		int day = DateKey.of(1880, 1, 1);
+
+		try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file), 1 << 16)) {
+			byte[] header = "Entity,Code,Day,temperature_anomaly\n".getBytes("US-ASCII");
+			out.write(header);
+			written += header.length;
+			for (long row = 0; written < bytes; row++) {
+				// entities[0] is the world
+				int id = (int) (row & 3);
+				line.setLength(0);
+				line.append(entities[id]).append(',').append(id == 0 ? "OWID_WRL" : "").append(',');
+				line.append(DateKey.year(day)).append('-').append(DateKey.month(day))
+						.append('-').append(DateKey.dayOfMonth(day)).append(',');
+				line.append(Math.round(random.nextGaussian() * 1000) / 1000.0).append('\n');
+				if (id == 0) {
+					day++;
+				}
+				for (int i = 0; i < line.length(); i++) {
+					out.write(line.charAt(i));
+				}
+				written += line.length();
+			}
+		}
+	}
+
+	// The keys 0 to n - 1 in order or shuffled
+	private static Integer[] Keys(int n, boolean sorted) {
+		Integer[] keys = new Integer[n];
+		for (int i = 0; i < n; i++) {
+			keys[i] = i;
+		}
+		if (!sorted) {
+			Random random = new Random(232);
+			for (int i = n - 1; i > 0; i--) {
+				int j = random.nextInt(i + 1);
+				Integer swap = keys[i];
+				keys[i] = keys[j];
+				keys[j] = swap;
+			}
+		}
+		return keys;
+	}
+
+	private static Subject NewRedBlackTree() {
+		RedBlackTree<Integer, Integer> tree = new RedBlackTree<Integer, Integer>();
+		return new Subject() {
+			public void insert(Integer key) {
+				tree.insert(key, key);
+			}
+			public Integer get(Integer key) {
+				return tree.get(key);
+			}
+			public void delete(Integer key) {
+				tree.delete(key);
+			}
+			public long range(Integer lo, Integer hi) {
+				long sum = 0;
+				for (Integer key : tree.keys(lo, hi)) {
+					sum += key;
+				}
+				return sum;
+			}
+		};
+	}
+
+	private static Subject NewTreeMap() {
+		TreeMap<Integer, Integer> map = new TreeMap<Integer, Integer>();
+		return new Subject() {
+			public void insert(Integer key) {
+				map.put(key, key);
+			}
+			public Integer get(Integer key) {
+				return map.get(key);
+			}
+			public void delete(Integer key) {
+				map.remove(key);
+			}
+			public long range(Integer lo, Integer hi) {
+				long sum = 0;
+				for (Map.Entry<Integer, Integer> entry : map.subMap(lo, true, hi, true).entrySet()) {
+					sum += entry.getKey();
+				}
+				return sum;
+			}
+		};
+	}
+}
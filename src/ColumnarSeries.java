@@ -0,0 +1,259 @@
+import java.util.Arrays;
+
+/**
+ * One dataset laid out as two plain arrays, the dates in ascending
+ * order and the reading of each date, for scans over the whole history
+ *
+ * Walking a tree in order follows a pointer per node, while a scan of
+ * these arrays reads memory front to back. The aggregate loops keep
+ * four separate partial results so each step does not have to wait
+ * for the one before it, and have no branches or calls inside that
+ * would stop the JIT from unrolling or vectorizing them
+ *
+ * Made from a <date, info> tree with of() once it is loaded. The
+ * arrays are never changed, reload the tree and call of() again
+ *
+ * @author Bryce Lehnen
+ */
+public class ColumnarSeries {
+
+	private final int[] days;		// Epoch days in ascending order
+	private final double[] values;	// values[i] is the reading on days[i]
+
+	/**
+	 * Creates the series from copies of the given arrays
+	 *
+	 * @param days Epoch days in strictly ascending order
+	 * @param values The reading of each day
+	 */
+	public ColumnarSeries(int[] days, double[] values) {
+		this(days.clone(), values.clone(), true);
+	}
+	// Uses the arrays as they are, check is false when they are known to be sorted
+	private ColumnarSeries(int[] days, double[] values, boolean check) {
+		if (days.length != values.length) throw new IllegalArgumentException("ColumnarSeries needs one value per day");
+		if (check) {
+			for (int i = 1; i < days.length; i++) {
+				if (days[i - 1] >= days[i]) throw new IllegalArgumentException("ColumnarSeries days are not in ascending order");
+			}
+		}
+		this.days = days;
+		this.values = values;
+	}
+
+	/**
+	 * Copies a <date, info> tree into a series in O(n)
+	 */
+	public static ColumnarSeries of(IntDateKeyedRedBlackTree tree) {
+		int n = tree.size();
+		int[] days = new int[n];
+		double[] values = new double[n];
+		tree.copyTo(days, values);
+		return new ColumnarSeries(days, values, false);
+	}
+
+	// Returns the number of readings
+	public int size() {
+		return days.length;
+	}
+	// Checks if there are no readings
+	public boolean IsEmpty() {
+		return days.length == 0;
+	}
+	// Returns the date of the i-th reading as an epoch day
+	public int day(int i) {
+		return days[i];
+	}
+	// Returns the i-th reading
+	public double value(int i) {
+		return values[i];
+	}
+
+	/**
+	 * Returns the index of the first reading on or after the given
+	 * day, size() if there is none. With indexOf(hi + 1) this turns
+	 * a date range into the index range used by the aggregates
+	 */
+	public int indexOf(int day) {
+		int i = Arrays.binarySearch(days, day);
+		return i >= 0 ? i : -(i + 1);
+	}
+
+	// Returns the sum of every reading
+	public double sum() {
+		return Sum(values, 0, values.length);
+	}
+	// Returns the sum of the readings from index from to index to - 1
+	public double sum(int from, int to) {
+		Check(from, to);
+		return Sum(values, from, to);
+	}
+
+	// Returns the mean of every reading
+	public double mean() {
+		return mean(0, values.length);
+	}
+	// Returns the mean of the readings from index from to index to - 1
+	public double mean(int from, int to) {
+		Check(from, to);
+		if (from == to) throw new IllegalArgumentException("calls mean() with no readings");
+		return Sum(values, from, to) / (to - from);
+	}
+
+	// Returns the lowest reading
+	public double min() {
+		return min(0, values.length);
+	}
+	// Returns the lowest reading from index from to index to - 1
+	public double min(int from, int to) {
+		Check(from, to);
+		if (from == to) throw new IllegalArgumentException("calls min() with no readings");
+		double m0 = values[from], m1 = m0, m2 = m0, m3 = m0;
+		int i = from;
+		for (; i + 3 < to; i += 4) {
+			m0 = Math.min(m0, values[i]);
+			m1 = Math.min(m1, values[i + 1]);
+			m2 = Math.min(m2, values[i + 2]);
+			m3 = Math.min(m3, values[i + 3]);
+		}
+		for (; i < to; i++) {
+			m0 = Math.min(m0, values[i]);
+		}
+		return Math.min(Math.min(m0, m1), Math.min(m2, m3));
+	}
+
+	// Returns the highest reading
+	public double max() {
+		return max(0, values.length);
+	}
+	// Returns the highest reading from index from to index to - 1
+	public double max(int from, int to) {
+		Check(from, to);
+		if (from == to) throw new IllegalArgumentException("calls max() with no readings");
+		double m0 = values[from], m1 = m0, m2 = m0, m3 = m0;
+		int i = from;
+		for (; i + 3 < to; i += 4) {
+			m0 = Math.max(m0, values[i]);
+			m1 = Math.max(m1, values[i + 1]);
+			m2 = Math.max(m2, values[i + 2]);
+			m3 = Math.max(m3, values[i + 3]);
+		}
+		for (; i < to; i++) {
+			m0 = Math.max(m0, values[i]);
+		}
+		return Math.max(Math.max(m0, m1), Math.max(m2, m3));
+	}
+
+	/**
+	 * Returns the mean of each reading and the readings before it
+	 * that are less than the given number of days older, so 365 gives
+	 * a trailing one year average whatever the sampling of the dataset
+	 * The window slides over the arrays once, O(n)
+	 *
+	 * @param window The length of the window in days
+	 * @return rolling[i] is the mean of the window ending on day(i)
+	 */
+	public double[] rollingMean(int window) {
+		if (window < 1) throw new IllegalArgumentException("argument to rollingMean() is invalid: " + window);
+		int n = days.length;
+		double[] rolling = new double[n];
+		double sum = 0;
+		int start = 0;
+		for (int i = 0; i < n; i++) {
+			sum += values[i];
+			while (days[start] <= days[i] - window) {
+				sum -= values[start++];
+			}
+			rolling[i] = sum / (i - start + 1);
+		}
+		return rolling;
+	}
+
+	/**
+	 * Returns how much each reading changed from the reading on the
+	 * same day of the year before (28/2 for a leap day, see
+	 * DateKey.yearBefore()), found by walking a second index
+	 * one year behind the first, O(n)
+	 *
+	 * @return delta[i] is value(i) minus the reading a year before
+	 *         day(i), or NaN if there was no reading on that day
+	 */
+	public double[] yearOverYear() {
+		int n = days.length;
+		double[] delta = new double[n];
+		int j = 0;
+		for (int i = 0; i < n; i++) {
+			int before = DateKey.yearBefore(days[i]);
+			while (days[j] < before) {
+				j++;
+			}
+			delta[i] = days[j] == before ? values[i] - values[j] : Double.NaN;
+		}
+		return delta;
+	}
+
+	/**
+	 * Returns the Pearson correlation of the two series over the days
+	 * they both have a reading on. The days are matched by walking both
+	 * arrays together once, then the means and sums of products are
+	 * taken over the matched readings
+	 *
+	 * @return A value from -1 to 1, or NaN if fewer than two days match
+	 *         or either series is constant on those days
+	 */
+	public double correlation(ColumnarSeries other) {
+		int n = Math.min(size(), other.size());
+		double[] x = new double[n];
+		double[] y = new double[n];
+		int m = 0;
+		for (int i = 0, j = 0; i < days.length && j < other.days.length;) {
+			if (days[i] < other.days[j]) {
+				i++;
+			}
+			else if (days[i] > other.days[j]) {
+				j++;
+			}
+			else {
+				x[m] = values[i++];
+				y[m++] = other.values[j++];
+			}
+		}
+		if (m < 2) return Double.NaN;
+
+		double meanX = Sum(x, 0, m) / m;
+		double meanY = Sum(y, 0, m) / m;
+		double sxy = 0, sxx = 0, syy = 0;
+		for (int i = 0; i < m; i++) {
+			double dx = x[i] - meanX;
+			double dy = y[i] - meanY;
+			sxy += dx * dy;
+			sxx += dx * dx;
+			syy += dy * dy;
+		}
+		if (sxx == 0 || syy == 0) return Double.NaN;
+		return sxy / Math.sqrt(sxx * syy);
+	}
+
+	// Sum of a[from] to a[to - 1] in four independent partial sums
+	private static double Sum(double[] a, int from, int to) {
+		double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+		int i = from;
+		for (; i + 3 < to; i += 4) {
+			s0 += a[i];
+			s1 += a[i + 1];
+			s2 += a[i + 2];
+			s3 += a[i + 3];
+		}
+		for (; i < to; i++) {
+			s0 += a[i];
+		}
+		return (s0 + s1) + (s2 + s3);
+	}
+
+	// Makes sure from and to are an index range of the series
+	private void Check(int from, int to) {
+		if (from < 0 || to > values.length || from > to) {
+			throw new IndexOutOfBoundsException("invalid index range: " + from + " to " + to);
+		}
+	}
+}
@@ -0,0 +1,121 @@
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A red black tree that can be read by any number of threads while
+ * another thread is inserting or deleting
+ *
+ * The tree is a PersistentRedBlackTree. An insert or delete builds
+ * the next version, which shares every untouched subtree with the
+ * current one, then publishes it through an AtomicReference. Readers
+ * load the current version once and work on it, so they never lock,
+ * never wait for a writer, and never see a half finished rotation.
+ * Writers take a lock so that only one of them builds a new version
+ * at a time
+ *
+ * @author Bryce Lehnen
+ */
+public class ConcurrentRedBlackTree<Key extends Comparable<Key>, Value> implements OrderedSymbolTable<Key, Value> {
+
+	private final AtomicReference<PersistentRedBlackTree<Key, Value>> current =
+			new AtomicReference<PersistentRedBlackTree<Key, Value>>(new PersistentRedBlackTree<Key, Value>());
+	private final Object writeLock = new Object();
+
+	/**
+	 * Creates a blank tree
+	 */
+	public ConcurrentRedBlackTree() {
+	}
+
+	/**
+	 * Returns the tree as it is right now. Later writes make new
+	 * versions and never change this one, so it can be kept as
+	 * the dataset as of this point for as long as it is needed
+	 * at a cost of O(log n) extra nodes per later update
+	 */
+	public PersistentRedBlackTree<Key, Value> snapshot() {
+		return current.get();
+	}
+
+	// Returns the size of the entire tree
+	public int size() {
+		return current.get().size();
+	}
+	// Checks if the tree is empty
+	public boolean IsEmpty() {
+		return current.get().IsEmpty();
+	}
+
+	/**
+	 * Inserts the key/value pair, readers keep seeing the old
+	 * tree until the new version is published
+	 * Will overwrite the value if the key already exists
+	 */
+	public void insert(Key key, Value val) {
+		synchronized (writeLock) {
+			current.set(current.get().insert(key, val));
+		}
+	}
+
+	/**
+	 * Deletes the given key if it is in the tree
+	 */
+	public void delete(Key key) {
+		synchronized (writeLock) {
+			current.set(current.get().delete(key));
+		}
+	}
+
+	/**
+	 * Deletes the smallest key
+	 */
+	public void deleteMin() {
+		synchronized (writeLock) {
+			current.set(current.get().deleteMin());
+		}
+	}
+
+	/**
+	 * Returns the value for the given key or null if
+	 * the key is not in the tree, never blocks
+	 */
+	public Value get(Key key) {
+		return current.get().get(key);
+	}
+
+	/**
+	 * Returns true if the key is in the tree
+	 */
+	public boolean Contains(Key key) {
+		return current.get().Contains(key);
+	}
+
+	/**
+	 * Returns the minimum key
+	 */
+	public Key min() {
+		return current.get().min();
+	}
+
+	/**
+	 * Returns the maximum key
+	 */
+	public Key max() {
+		return current.get().max();
+	}
+
+	/**
+	 * Returns all the keys in the tree as it was when
+	 * keys() was called, later writes are not seen
+	 */
+	public Iterable<Key> keys() {
+		return current.get().keys();
+	}
+
+	/**
+	 * Returns the keys between lo and hi (inclusive) in the
+	 * tree as it was when keys() was called
+	 */
+	public Iterable<Key> keys(Key lo, Key hi) {
+		return current.get().keys(lo, hi);
+	}
+}
@@ -0,0 +1,443 @@
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads a .csv file one row at a time without creating a String
+ * for every line or an array for every split
+ *
+ * The file is read in large blocks into a byte buffer and each row
+ * is only remembered as the offsets of its fields in that buffer.
+ * Numbers and dates are parsed straight from the bytes and rows
+ * can be skipped by their first column before the rest of the row
+ * is looked at. Only plain ASCII files without quoted fields are
+ * supported which is what the OWID exports use
+ *
+ * The file can either be streamed through a buffer or memory mapped.
+ * When it is mapped the rows are parsed straight out of the page cache
+ * without being copied. The file is mapped one window at a time so
+ * files larger than 2 GB (the limit of a single mapping) also work
+ *
+ * @author Bryce Lehnen
+ */
+public class CsvReader implements Closeable {
+
+	/**
+	 * Receives the date and value of each row handed out by readSeries()
+	 */
+	public interface RowHandler {
+		void row(int day, double value);
+	}
+
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final int MAP_WINDOW = 1 << 26;	// 64 MB mapped at a time
+	private static final int MAX_FIELDS = 32;
+
+	// Powers of ten that are exact as doubles
+	private static final double[] POWERS = new double[23];
+	static {
+		POWERS[0] = 1.0;
+		for (int i = 1; i < POWERS.length; i++) {
+			POWERS[i] = POWERS[i - 1] * 10.0;
+		}
+	}
+
+	// Only one of these is used, depending on the mode
+	private final InputStream in;		// Streamed mode
+	private final FileChannel channel;	// Mapped mode
+
+	private ByteBuffer buf;
+	private long bufStart;	// File offset of buf.get(0)
+	private int pos;		// Start of the next unread line
+	private int limit;		// End of the bytes read so far
+	private boolean eof;
+	private long stop = Long.MAX_VALUE;	// Rows starting at or after this offset are not read
+
+	// Mapped mode only
+	private long fileSize;
+	private int window = MAP_WINDOW;
+
+	// Offsets of the current row, field i is [start[i], end[i])
+	private final int[] start = new int[MAX_FIELDS];
+	private final int[] end = new int[MAX_FIELDS];
+	private int fields;
+
+	/**
+	 * Opens the file for streamed reading
+	 *
+	 * @param filename The .csv file
+	 */
+	public CsvReader(String filename) throws IOException {
+		this(filename, false);
+	}
+
+	/**
+	 * Opens the file for reading
+	 *
+	 * @param filename The .csv file
+	 * @param mapped True to memory map the file instead of streaming it
+	 */
+	public CsvReader(String filename, boolean mapped) throws IOException {
+		this(filename, mapped, 0, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Opens the file for reading only the rows that start
+	 * between the two byte offsets. A row that starts before from
+	 * and crosses it belongs to the range before, so splitting a
+	 * file at any offsets reads every row exactly once
+	 *
+	 * @param filename The .csv file
+	 * @param mapped True to memory map the file instead of streaming it
+	 * @param from First byte of the range
+	 * @param to Byte after the end of the range
+	 */
+	public CsvReader(String filename, boolean mapped, long from, long to) throws IOException {
+		// Starts one byte early so a row starting exactly at from is not skipped below
+		long first = from > 0 ? from - 1 : 0;
+		if (mapped) {
+			in = null;
+			channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+			fileSize = channel.size();
+			buf = ByteBuffer.allocate(0);
+			eof = first >= fileSize;
+		}
+		else {
+			FileInputStream file = new FileInputStream(filename);
+			file.getChannel().position(first);
+			in = file;
+			channel = null;
+			buf = ByteBuffer.allocate(BUFFER_SIZE);
+		}
+		bufStart = first;
+		stop = to;
+
+		// Skips the rest of the row that started before the range
+		if (from > 0) {
+			int lineEnd = FindLineEnd();
+			pos = lineEnd < 0 ? limit : lineEnd + 1;
+		}
+	}
+
+	/**
+	 * Reads every row of the file whose first column is the given entity
+	 * and hands its date and value columns to the handler
+	 *
+	 * This is the one loading loop used for every dataset
+	 *
+	 * @param filename The .csv file
+	 * @param entity Rows with any other entity are skipped
+	 * @param dateCol Column holding the date
+	 * @param valueCol Column holding the reading
+	 * @param handler Gets the epoch day and the reading of each row
+	 */
+	public static void readSeries(String filename, String entity, int dateCol, int valueCol,
+			RowHandler handler) throws IOException {
+		readSeries(filename, false, entity, dateCol, valueCol, handler);
+	}
+
+	/**
+	 * The same as readSeries() above but can memory map the file
+	 *
+	 * @param mapped True to memory map the file instead of streaming it
+	 */
+	public static void readSeries(String filename, boolean mapped, String entity, int dateCol, int valueCol,
+			RowHandler handler) throws IOException {
+		readSeries(filename, mapped, 0, Long.MAX_VALUE, entity, dateCol, valueCol, handler);
+	}
+
+	/**
+	 * The same as readSeries() above but only reads the rows that
+	 * start from the byte offset from up to the offset to, ie. the
+	 * rows that were added since the file was last read up to from.
+	 * to should be the end of a complete line (see IngestState) so a
+	 * row that is still being written is not read
+	 *
+	 * @param from First byte to read
+	 * @param to Byte after the last one to read
+	 */
+	public static void readSeries(String filename, boolean mapped, long from, long to, String entity, int dateCol,
+			int valueCol, RowHandler handler) throws IOException {
+		byte[] match = entity.getBytes(StandardCharsets.UTF_8);
+		try (CsvReader reader = new CsvReader(filename, mapped, from, to)) {
+			while (reader.next(match)) {
+				handler.row(reader.dateField(dateCol), reader.doubleField(valueCol));
+			}
+		}
+	}
+
+	/**
+	 * Moves to the next row
+	 *
+	 * @return False once the end of the file has been reached
+	 */
+	public boolean next() throws IOException {
+		return next(null);
+	}
+
+	/**
+	 * Moves to the next row whose first column matches the given
+	 * bytes. Rows that do not match are skipped without splitting them
+	 *
+	 * @param first The first column to look for, or null for any row
+	 * @return False once the end of the file has been reached
+	 */
+	public boolean next(byte[] first) throws IOException {
+		while (true) {
+			if (bufStart + pos >= stop) return false;
+			int lineEnd = FindLineEnd();
+			if (lineEnd < 0) return false;
+
+			int lineStart = pos;
+			pos = lineEnd + 1;
+			// Drops the \r of a \r\n line ending
+			if (lineEnd > lineStart && buf.get(lineEnd - 1) == '\r') {
+				lineEnd--;
+			}
+			if (lineEnd == lineStart) continue;
+
+			if (first == null || StartsWithField(lineStart, lineEnd, first)) {
+				Split(lineStart, lineEnd);
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Returns the index of the \n ending the line at pos,
+	 * reading more of the file as needed. The last line of the
+	 * file does not need a \n. Returns -1 at the end of the file
+	 */
+	private int FindLineEnd() throws IOException {
+		int i = pos;
+		while (true) {
+			while (i < limit) {
+				if (buf.get(i) == '\n') return i;
+				i++;
+			}
+			if (eof) {
+				if (pos >= limit) return -1;
+				// The last line has no \n, so one is pretended just past
+				// the end which leaves pos past limit for the next call
+				return limit;
+			}
+			i -= pos;
+			if (channel != null) {
+				Map();
+			}
+			else {
+				Fill();
+			}
+			i += pos;
+		}
+	}
+
+	/**
+	 * Moves the unread bytes to the front of the buffer and reads
+	 * more of the file after them, growing the buffer if one
+	 * line does not fit
+	 */
+	private void Fill() throws IOException {
+		byte[] bytes = buf.array();
+		int unread = limit - pos;
+		bufStart += pos;
+		if (unread >= bytes.length) {
+			byte[] bigger = new byte[bytes.length * 2];
+			System.arraycopy(bytes, pos, bigger, 0, unread);
+			bytes = bigger;
+			buf = ByteBuffer.wrap(bytes);
+		}
+		else {
+			System.arraycopy(bytes, pos, bytes, 0, unread);
+		}
+		pos = 0;
+		limit = unread;
+		if (eof) return;
+
+		int n = in.read(bytes, limit, bytes.length - limit);
+		if (n < 0) {
+			eof = true;
+		}
+		else {
+			limit += n;
+		}
+	}
+
+	/**
+	 * Maps the next window of the file starting at the unread line,
+	 * doubling the window if one line does not fit in it
+	 */
+	private void Map() throws IOException {
+		long offset = bufStart + pos;
+		long remaining = fileSize - offset;
+		int unread = limit - pos;
+		if (unread >= window && remaining > window) {
+			window = (int) Math.min(2L * window, Integer.MAX_VALUE - 8);
+		}
+		int size = (int) Math.min(window, remaining);
+
+		buf = channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+		bufStart = offset;
+		pos = 0;
+		limit = size;
+		eof = offset + size == fileSize;
+	}
+
+	// True if the first field of the line is exactly the given bytes
+	private boolean StartsWithField(int lineStart, int lineEnd, byte[] first) {
+		if (lineEnd - lineStart < first.length) return false;
+		for (int i = 0; i < first.length; i++) {
+			if (buf.get(lineStart + i) != first[i]) return false;
+		}
+		return lineStart + first.length == lineEnd || buf.get(lineStart + first.length) == ',';
+	}
+
+	// Records where each field of the line starts and ends
+	private void Split(int lineStart, int lineEnd) {
+		fields = 0;
+		int s = lineStart;
+		for (int i = lineStart; i < lineEnd && fields < MAX_FIELDS - 1; i++) {
+			if (buf.get(i) == ',') {
+				start[fields] = s;
+				end[fields] = i;
+				fields++;
+				s = i + 1;
+			}
+		}
+		start[fields] = s;
+		end[fields] = lineEnd;
+		fields++;
+	}
+
+	/**
+	 * Returns the number of fields in the current row
+	 */
+	public int fields() {
+		return fields;
+	}
+
+	/**
+	 * Returns the field as a String, decoded as UTF-8 like the OWID files
+	 * Only needed for text columns, numbers and dates
+	 * should use doubleField() and dateField()
+	 */
+	public String field(int col) {
+		return new String(fieldBytes(col), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Returns a copy of the field's bytes as they are in the file
+	 */
+	public byte[] fieldBytes(int col) {
+		CheckField(col);
+		byte[] bytes = new byte[end[col] - start[col]];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = buf.get(start[col] + i);
+		}
+		return bytes;
+	}
+
+	/**
+	 * Returns the hash of the field's bytes without creating a String
+	 * It is the same as Arrays.hashCode() of the field's bytes
+	 */
+	public int fieldHash(int col) {
+		CheckField(col);
+		int h = 1;
+		for (int i = start[col]; i < end[col]; i++) {
+			h = 31 * h + buf.get(i);
+		}
+		return h;
+	}
+
+	/**
+	 * Returns true if the field is exactly the given bytes
+	 */
+	public boolean fieldEquals(int col, byte[] bytes) {
+		CheckField(col);
+		if (end[col] - start[col] != bytes.length) return false;
+		for (int i = 0; i < bytes.length; i++) {
+			if (buf.get(start[col] + i) != bytes[i]) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Parses the field as a double without creating a String
+	 * Plain decimals with up to 15 digits are parsed directly,
+	 * anything else (exponents, very long numbers) falls back to
+	 * Double.parseDouble
+	 */
+	public double doubleField(int col) {
+		CheckField(col);
+		int i = start[col];
+		int e = end[col];
+		if (i == e) throw new NumberFormatException("empty field " + col);
+
+		boolean negative = false;
+		if (buf.get(i) == '-' || buf.get(i) == '+') {
+			negative = buf.get(i) == '-';
+			i++;
+		}
+
+		long digits = 0;
+		int count = 0;
+		int decimals = 0;
+		boolean point = false;
+		for (; i < e; i++) {
+			byte b = buf.get(i);
+			if (b >= '0' && b <= '9') {
+				digits = digits * 10 + (b - '0');
+				count++;
+				if (point) decimals++;
+			}
+			else if (b == '.' && !point) {
+				point = true;
+			}
+			else {
+				return Double.parseDouble(field(col));
+			}
+		}
+		if (count == 0 || count > 15 || decimals >= POWERS.length) {
+			return Double.parseDouble(field(col));
+		}
+
+		// Both numbers are exact doubles so the division is correctly rounded
+		double value = digits / POWERS[decimals];
+		return negative ? -value : value;
+	}
+
+	/**
+	 * Parses the field as a date and returns it as an epoch day
+	 * Both year-month-day and month/day/year are accepted
+	 */
+	public int dateField(int col) {
+		CheckField(col);
+		return DateKey.parse(buf, start[col], end[col]);
+	}
+
+	// Throws if the current row does not have the column
+	private void CheckField(int col) {
+		if (col < 0 || col >= fields) {
+			throw new IndexOutOfBoundsException("row has " + fields + " fields, asked for " + col);
+		}
+	}
+
+	/**
+	 * Closes the file
+	 */
+	public void close() throws IOException {
+		if (channel != null) {
+			channel.close();
+		}
+		else {
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,134 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Describes one OWID .csv series: where the file is, which rows and
+ * columns to read, how to turn a raw reading into the info kept in
+ * the trees, and how the report names it
+ *
+ * Every registered dataset is loaded by Driver through the same loop
+ * (see LoadedDataset), so adding a series such as methane is one
+ * register() call instead of another data class and load loop:
+ *
+ *   Dataset.register(new Dataset("methane", "methane.csv", Dataset.WORLD, 2, 3,
+ *           value -> Math.round(value * 100.0) / 100.0,
+ *           "methane concentration", "average methane concentration"));
+ *
+ * @author Bryce Lehnen
+ */
+public class Dataset {
+
+	/**
+	 * The entity the report is about
+	 */
+	public static final String WORLD = "World";
+
+	// Registered datasets in the order they were registered
+	private static final List<Dataset> REGISTRY = new ArrayList<Dataset>();
+
+	// The temperature is converted from celsius into F
+	public static final Dataset TEMPERATURE = register(new Dataset("temperature_anomaly_f",
+			"temperature_anomaly.csv", WORLD, 2, 3, value -> Round(value * 1.8),
+			"temperature anomaly (F)", "temperature anomaly (F)"));
+	public static final Dataset SEA_LEVEL = register(new Dataset("sea_level_rise",
+			"sea_level.csv", WORLD, 2, 3, Dataset::Round,
+			"sea level rise", "average sea level rise"));
+	public static final Dataset CO2_CONCENTRATION = register(new Dataset("co2_concentration",
+			"co2.csv", WORLD, 2, 3, Dataset::Round,
+			"average CO2 concentration", "average CO2 concentration"));
+
+	private final String name;
+	private final String filename;
+	private final String entity;
+	private final int dateColumn;
+	private final int valueColumn;
+	private final DoubleUnaryOperator transform;
+	private final String label;
+	private final String sameLabel;
+
+	/**
+	 * Creates a dataset, it is not loaded until it is registered
+	 *
+	 * @param name Short unique name, also the column name in joined output
+	 * @param filename The .csv file
+	 * @param entity Only rows whose first column is this are read
+	 * @param dateColumn Index of the date column, counting from 0
+	 * @param valueColumn Index of the reading column, counting from 0
+	 * @param transform Turns a raw reading into the info kept in the
+	 *                  trees, for example rounding and unit conversion
+	 * @param label Names the reading in the report, "Lowest " + label
+	 * @param sameLabel Names it when it is listed next to another
+	 *                  dataset's extreme, "On that same date, the " + sameLabel
+	 */
+	public Dataset(String name, String filename, String entity, int dateColumn, int valueColumn,
+			DoubleUnaryOperator transform, String label, String sameLabel) {
+		if (dateColumn < 0 || valueColumn < 0) throw new IllegalArgumentException("column indexes can not be negative");
+		this.name = name;
+		this.filename = filename;
+		this.entity = entity;
+		this.dateColumn = dateColumn;
+		this.valueColumn = valueColumn;
+		this.transform = transform;
+		this.label = label;
+		this.sameLabel = sameLabel;
+	}
+
+	/**
+	 * Adds the dataset to the ones Driver loads
+	 *
+	 * @return The dataset, so a constant can be registered as it is made
+	 * @throws IllegalArgumentException If the name is already registered
+	 */
+	public static synchronized Dataset register(Dataset dataset) {
+		if (named(dataset.name) != null) throw new IllegalArgumentException("dataset already registered: " + dataset.name);
+		REGISTRY.add(dataset);
+		return dataset;
+	}
+
+	// Returns every registered dataset in the order they were registered
+	public static synchronized List<Dataset> all() {
+		return Collections.unmodifiableList(new ArrayList<Dataset>(REGISTRY));
+	}
+
+	// Returns the registered dataset with the given name, or null
+	public static synchronized Dataset named(String name) {
+		for (Dataset dataset : REGISTRY) {
+			if (dataset.name.equals(name)) return dataset;
+		}
+		return null;
+	}
+
+	public String name() {
+		return name;
+	}
+	public String filename() {
+		return filename;
+	}
+	public String entity() {
+		return entity;
+	}
+	public int dateColumn() {
+		return dateColumn;
+	}
+	public int valueColumn() {
+		return valueColumn;
+	}
+	public String label() {
+		return label;
+	}
+	public String sameLabel() {
+		return sameLabel;
+	}
+
+	// Turns a raw reading from the .csv into the info kept in the trees
+	public double transform(double value) {
+		return transform.applyAsDouble(value);
+	}
+
+	// Rounds a reading to two decimal places
+	private static double Round(double value) {
+		return Math.round(value * 100.0) / 100.0;
+	}
+}
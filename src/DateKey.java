@@ -0,0 +1,179 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Turns the dates found in the .csv files into int keys
+ *
+ * A date key is the number of days since 1/1/1970 (an epoch day), so
+ * comparing two keys compares the dates chronologically and the keys
+ * of a date range are simply every int between the two ends.
+ * Both year-month-day (1880-01-15) and month/day/year (1/15/1880)
+ * are parsed character by character without splitting the text
+ *
+ * The day counting is Howard Hinnant's days_from_civil algorithm
+ * http://howardhinnant.github.io/date_algorithms.html
+ *
+ * @author Bryce Lehnen
+ */
+public class DateKey {
+
+	private static final int[] DAYS_IN_MONTH = {31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+
+	private DateKey() {
+	}
+
+	/**
+	 * Returns the key for the given date
+	 *
+	 * @param year The year, ie. 2021
+	 * @param month 1 to 12
+	 * @param day 1 to the length of the month
+	 * @return The epoch day
+	 */
+	public static int of(int year, int month, int day) {
+		if (month < 1 || month > 12 || day < 1 || day > DaysInMonth(year, month)) {
+			throw new IllegalArgumentException("bad date: " + month + "/" + day + "/" + year);
+		}
+
+		// Counts years from March so the leap day is the last day of the year
+		int y = month <= 2 ? year - 1 : year;
+		int era = Math.floorDiv(y, 400);
+		int yoe = y - era * 400;									// [0, 399]
+		int doy = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;	// [0, 365]
+		int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;			// [0, 146096]
+		return era * 146097 + doe - 719468;
+	}
+
+	/**
+	 * Parses a date written as year-month-day or month/day/year
+	 *
+	 * @param text The date
+	 * @return The epoch day
+	 */
+	public static int parse(CharSequence text) {
+		int a = 0, b = 0, c = 0;
+		int part = 0;
+		char separator = 0;
+		for (int i = 0; i < text.length(); i++) {
+			char ch = text.charAt(i);
+			if (ch >= '0' && ch <= '9') {
+				if (part == 0) a = a * 10 + (ch - '0');
+				else if (part == 1) b = b * 10 + (ch - '0');
+				else c = c * 10 + (ch - '0');
+			}
+			else if ((ch == '-' || ch == '/') && part < 2 && (separator == 0 || separator == ch)) {
+				separator = ch;
+				part++;
+			}
+			else {
+				throw new IllegalArgumentException("bad date: " + text);
+			}
+		}
+		if (part != 2) throw new IllegalArgumentException("bad date: " + text);
+		return Key(separator, a, b, c);
+	}
+
+	/**
+	 * Parses a date from the bytes buf[start] to buf[end - 1]
+	 * the same way as parse(CharSequence)
+	 *
+	 * @return The epoch day
+	 */
+	public static int parse(ByteBuffer buf, int start, int end) {
+		int a = 0, b = 0, c = 0;
+		int part = 0;
+		byte separator = 0;
+		for (int i = start; i < end; i++) {
+			byte ch = buf.get(i);
+			if (ch >= '0' && ch <= '9') {
+				if (part == 0) a = a * 10 + (ch - '0');
+				else if (part == 1) b = b * 10 + (ch - '0');
+				else c = c * 10 + (ch - '0');
+			}
+			else if ((ch == '-' || ch == '/') && part < 2 && (separator == 0 || separator == ch)) {
+				separator = ch;
+				part++;
+			}
+			else {
+				throw new IllegalArgumentException("bad date at byte " + i);
+			}
+		}
+		if (part != 2) throw new IllegalArgumentException("bad date at byte " + start);
+		return Key(separator, a, b, c);
+	}
+
+	// Puts the three numbers in order based on the format
+	private static int Key(int separator, int a, int b, int c) {
+		if (separator == '-') {
+			return of(a, b, c);
+		}
+		return of(c, a, b);
+	}
+
+	/**
+	 * Writes the key as day/month/year, the format used in the report
+	 * The day and month never have a leading zero, whichever way the
+	 * date was written in the .csv file. Before dates were kept as keys
+	 * the report copied the text, so 1883-01-15 came out as 15/01/1883
+	 * while 1/15/1883 came out as 15/1/1883, now both are 15/1/1883
+	 *
+	 * @param key The epoch day
+	 * @return The date, ie. 15/1/2020
+	 */
+	public static String format(int key) {
+		int[] ymd = Civil(key);
+		return ymd[2] + "/" + ymd[1] + "/" + ymd[0];
+	}
+
+	/**
+	 * Returns the year of the key
+	 */
+	public static int year(int key) {
+		return Civil(key)[0];
+	}
+
+	/**
+	 * Returns the month of the key, 1 to 12
+	 */
+	public static int month(int key) {
+		return Civil(key)[1];
+	}
+
+	/**
+	 * Returns the day of the month of the key
+	 */
+	public static int dayOfMonth(int key) {
+		return Civil(key)[2];
+	}
+
+	/**
+	 * Returns the same day of the year one year before the key
+	 * A leap day goes back to 28/2 of the year before
+	 */
+	public static int yearBefore(int key) {
+		int[] ymd = Civil(key);
+		int year = ymd[0] - 1;
+		return of(year, ymd[1], Math.min(ymd[2], DaysInMonth(year, ymd[1])));
+	}
+
+	// The reverse of of(), returns {year, month, day} (civil_from_days)
+	private static int[] Civil(int key) {
+		int z = key + 719468;
+		int era = Math.floorDiv(z, 146097);
+		int doe = z - era * 146097;										// [0, 146096]
+		int yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;	// [0, 399]
+		int doy = doe - (365 * yoe + yoe / 4 - yoe / 100);				// [0, 365]
+		int mp = (5 * doy + 2) / 153;									// [0, 11]
+		int day = doy - (153 * mp + 2) / 5 + 1;
+		int month = mp < 10 ? mp + 3 : mp - 9;
+		int year = yoe + era * 400 + (month <= 2 ? 1 : 0);
+		return new int[] {year, month, day};
+	}
+
+	// Number of days in the month, counting leap years
+	private static int DaysInMonth(int year, int month) {
+		if (month == 2 && (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0))) {
+			return 29;
+		}
+		return DAYS_IN_MONTH[month - 1];
+	}
+}
@@ -0,0 +1,716 @@
+import java.util.NoSuchElementException;
+
+/**
+ * A red black tree specialized for double keys and int values
+ * Used for the <info, date> trees so that a reading and its date
+ * (as an epoch day) are stored directly in the node instead of
+ * being boxed into a Double and a String
+ * Keys are compared with Double.compare so the order is total
+ *
+ * In multimap mode a repeated key keeps every value instead of
+ * overwriting the old one. The first value stays in the node and
+ * the rest go into a small int array on the same node, so no extra
+ * objects are created for keys that are not repeated
+ *
+ * The smallest and largest keys are cached so min() and max() are
+ * O(1), and track() keeps the k lowest and highest entries as well
+ *
+ * Based on RedBlackTree which was taken from
+ * https://algs4.cs.princeton.edu/code/edu/princeton/cs/algs4/RedBlackBST.java.html
+ *
+ * @author Bryce Lehnen
+ */
+public class DoubleKeyedRedBlackTree {
+
+	/**
+	 * Returned by get() when the key is not in the tree
+	 */
+	public static final int NO_VALUE = Integer.MIN_VALUE;
+
+	private static final boolean RED = true;
+	private static final boolean BLACK = false;
+	private Node root;
+	private final boolean multimap;
+
+	// The nodes holding the smallest and largest keys, kept up to date
+	// by every change so min() and max() do not walk down the tree
+	private Node minNode, maxNode;
+	// Set by Insert() when a key that was already there was overwritten
+	private boolean replaced;
+	// Optional list of the k lowest and highest entries, see track()
+	private ExtremesTracker tracker;
+
+	private static class Node {
+		private double key;			// Key
+		private int val;			// Data, the first one in multimap mode
+		private int[] more;			// Multimap only, more[0] is the count and the rest follow it
+		private Node left, right;	// Links to children
+		private boolean color;		// Color of parent link
+		private int size;			// Subtree count
+		private int total;			// Subtree count of values, the same as size unless multimap
+
+		// Creates a new node based on the inputs
+		public Node(double key, int val, boolean color, int size) {
+			this.key = key;
+			this.val = val;
+			this.color = color;
+			this.size = size;
+			this.total = size;
+		}
+	}
+
+	/**
+	 * Creates a blank tree that overwrites the value of a repeated key
+	 */
+	public DoubleKeyedRedBlackTree() {
+		this(false);
+	}
+
+	/**
+	 * Creates a blank tree
+	 *
+	 * @param multimap True to keep every value of a repeated key
+	 */
+	public DoubleKeyedRedBlackTree(boolean multimap) {
+		this.multimap = multimap;
+	}
+
+	/**
+	 * Builds a tree from keys that are already in ascending order in
+	 * linear time, see RedBlackTree.bulkLoad()
+	 * Repeats of a key have to be next to each other. In multimap mode
+	 * the key keeps all of their values in the given order, otherwise
+	 * the last value wins the same as with insert()
+	 *
+	 * @param keys The keys in ascending order
+	 * @param vals The values, keys[i] goes with vals[i]
+	 * @param multimap True to keep every value of a repeated key
+	 * @return A balanced tree holding every key
+	 */
+	public static DoubleKeyedRedBlackTree bulkLoad(double[] keys, int[] vals, boolean multimap) {
+		if (keys.length != vals.length) throw new IllegalArgumentException("bulkLoad() needs one value per key");
+		DoubleKeyedRedBlackTree tree = new DoubleKeyedRedBlackTree(multimap);
+		tree.BulkLoad(keys, vals, keys.length);
+		return tree;
+	}
+	// Replaces the contents of the tree with the first n pairs
+	void BulkLoad(double[] keys, int[] vals, int n) {
+		BulkBuild(keys, vals, n);
+		Ends();
+	}
+	// Returns an empty tree in the same mode as this one
+	DoubleKeyedRedBlackTree Blank() {
+		return new DoubleKeyedRedBlackTree(multimap);
+	}
+	// Replaces the contents of the tree with the nodes of other,
+	// which should not be used after
+	void Replace(DoubleKeyedRedBlackTree other) {
+		if (other.multimap != multimap) throw new IllegalArgumentException("Replace() needs a tree in the same mode");
+		root = other.root;
+		Ends();
+	}
+	private void BulkBuild(double[] keys, int[] vals, int n) {
+		// starts[i] is where the i-th distinct key begins, starts[m] = n
+		int[] starts = new int[n + 1];
+		int m = 0;
+		for (int i = 0; i < n; i++) {
+			int cmp = i == 0 ? -1 : Double.compare(keys[i - 1], keys[i]);
+			if (cmp > 0) throw new IllegalArgumentException("bulkLoad() keys are not in ascending order");
+			if (cmp < 0) {
+				starts[m++] = i;
+			}
+		}
+		starts[m] = n;
+		root = Build(keys, vals, starts, 0, m, RedBlackTree.BlackHeight(m));
+	}
+	// Builds a black rooted subtree out of distinct keys lo to lo + n - 1
+	// the same way as RedBlackTree.Build()
+	private Node Build(double[] keys, int[] vals, int[] starts, int lo, int n, int bh) {
+		if (n == 0) return null;
+
+		if (n - 1 <= 2 * RedBlackTree.MOST_KEYS[bh - 1]) {
+			int ln = (n - 1) / 2;
+			int mid = lo + ln;
+			Node x = BuiltNode(keys, vals, starts, mid, BLACK);
+			x.left = Build(keys, vals, starts, lo, ln, bh - 1);
+			x.right = Build(keys, vals, starts, mid + 1, n - 1 - ln, bh - 1);
+			Update(x);
+			return x;
+		}
+
+		int rest = n - 2;
+		int an = rest / 3;
+		int bn = (rest - an) / 2;
+		int cn = rest - an - bn;
+		int ymid = lo + an;
+		int xmid = ymid + 1 + bn;
+		Node y = BuiltNode(keys, vals, starts, ymid, RED);
+		y.left = Build(keys, vals, starts, lo, an, bh - 1);
+		y.right = Build(keys, vals, starts, ymid + 1, bn, bh - 1);
+		Update(y);
+		Node x = BuiltNode(keys, vals, starts, xmid, BLACK);
+		x.left = y;
+		x.right = Build(keys, vals, starts, xmid + 1, cn, bh - 1);
+		Update(x);
+		return x;
+	}
+	// The node for the i-th distinct key holding its values
+	private Node BuiltNode(double[] keys, int[] vals, int[] starts, int i, boolean color) {
+		int from = starts[i];
+		int to = starts[i + 1];
+		if (!multimap) {
+			return new Node(keys[from], vals[to - 1], color, 1);
+		}
+		Node x = new Node(keys[from], vals[from], color, 1);
+		if (to - from > 1) {
+			x.more = new int[to - from];
+			x.more[0] = to - from - 1;
+			System.arraycopy(vals, from + 1, x.more, 1, to - from - 1);
+		}
+		return x;
+	}
+
+	/**
+	 * Helper methods
+	 */
+	// True if x is red, false if x is black
+	private boolean IsRed(Node x) {
+		if (x == null) return false;
+		return x.color == RED;
+	}
+	// Number of nodes in a subtree rooted at x; 0 if x is null
+	private int Size(Node x) {
+		if (x == null) return 0;
+		return x.size;
+	}
+	// Returns the size of the entire tree
+	public int size() {
+		return Size(root);
+	}
+	// Checks if the tree is empty
+	public boolean IsEmpty() {
+		return root == null;
+	}
+	// Removes every key
+	public void clear() {
+		root = null;
+		Ends();
+	}
+	// Finds the smallest and largest nodes again after a change that
+	// could have removed them, and refills the tracker if it needs it
+	private void Ends() {
+		minNode = root == null ? null : Min(root);
+		maxNode = root == null ? null : Max(root);
+		if (tracker != null) {
+			tracker.Refill();
+		}
+	}
+
+	/**
+	 * Starts keeping the k lowest and k highest entries of the tree
+	 * up to date as it changes. An insert costs O(1) extra unless the
+	 * value makes one of the lists, then O(k). Deleting a key that is
+	 * in one of the lists refills them from the tree in O(k log n)
+	 *
+	 * @param k How many entries to keep at each end
+	 * @return The tracker, also returned by tracker()
+	 */
+	public ExtremesTracker track(int k) {
+		tracker = new ExtremesTracker(this, k);
+		tracker.Refill();
+		return tracker;
+	}
+	// Returns the tracker made by track(), or null if there is none
+	public ExtremesTracker tracker() {
+		return tracker;
+	}
+	// Number of values in a subtree rooted at x; 0 if x is null
+	private int Total(Node x) {
+		if (x == null) return 0;
+		return x.total;
+	}
+	// Number of values kept in node x
+	private int Count(Node x) {
+		if (x.more == null) return 1;
+		return 1 + x.more[0];
+	}
+	// Returns the number of values in the tree, which is
+	// more than size() if multimap keys have several values
+	public int entries() {
+		return Total(root);
+	}
+	// Recomputes the size and total of h from its children
+	private void Update(Node h) {
+		h.size = Size(h.left) + Size(h.right) + 1;
+		h.total = Total(h.left) + Total(h.right) + Count(h);
+	}
+
+	/**
+	 * Inserts the key/value pair
+	 * Will overwrite the value if the key already exists, unless
+	 * this is a multimap in which case the value is added to the key
+	 */
+	public void insert(double key, int val) {
+		replaced = false;
+		root = Insert(root, key, val);
+		root.color = BLACK;
+
+		// Insert() never moves a key to another node, so the
+		// cached ends only change when the new key is past them
+		if (minNode == null || Double.compare(key, minNode.key) < 0) {
+			minNode = Min(root);
+		}
+		if (maxNode == null || Double.compare(key, maxNode.key) > 0) {
+			maxNode = Max(root);
+		}
+		if (tracker != null) {
+			tracker.Add(key, val, replaced);
+		}
+	}
+	private Node Insert(Node h, double key, int val) {
+		// Placed new node
+		if (h == null) {
+			return new Node(key, val, RED, 1);
+		}
+
+		int cmp = Double.compare(key, h.key);
+		if (cmp < 0) {
+			h.left = Insert(h.left, key, val);
+		}
+		else if (cmp > 0) {
+			h.right = Insert(h.right, key, val);
+		}
+		else if (multimap) {
+			Append(h, val);
+		}
+		else {
+			h.val = val;
+			replaced = true;
+		}
+
+		return Balance(h);
+	}
+
+	// Adds one more value to a multimap node, doubling its array when full
+	private void Append(Node h, int val) {
+		if (h.more == null) {
+			h.more = new int[2];
+		}
+		else if (h.more[0] + 1 == h.more.length) {
+			int[] bigger = new int[h.more.length * 2];
+			System.arraycopy(h.more, 0, bigger, 0, h.more.length);
+			h.more = bigger;
+		}
+		h.more[0]++;
+		h.more[h.more[0]] = val;
+	}
+
+	/**
+	 * Helper functions to rotate the tree keeping
+	 * it in balance, see RedBlackTree
+	 */
+	private Node RotateLeft(Node h) {
+		Node x = h.right;
+		h.right = x.left;
+		x.left = h;
+		x.color = x.left.color;
+		x.left.color = RED;
+		x.size = h.size;
+		x.total = h.total;
+		Update(h);
+
+		return x;
+	}
+	private Node RotateRight(Node h) {
+		Node x = h.left;
+		h.left = x.right;
+		x.right = h;
+		x.color = x.right.color;
+		x.right.color = RED;
+		x.size = h.size;
+		x.total = h.total;
+		Update(h);
+
+		return x;
+	}
+	private void FlipColors(Node h) {
+		h.color = !h.color;
+		h.left.color = !h.left.color;
+		h.right.color = !h.right.color;
+	}
+
+	/**
+	 * Deletes the given key, with all of its values,
+	 * if it is in the tree
+	 */
+	public void delete(double key) {
+		if (!Contains(key)) return;
+
+		// If both children are black, set root to red
+		if (!IsRed(root.left) && !IsRed(root.right)) {
+			root.color = RED;
+		}
+
+		root = Delete(root, key);
+		if (!IsEmpty()) {
+			root.color = BLACK;
+		}
+
+		// Delete() copies keys between nodes so the ends are found again
+		minNode = IsEmpty() ? null : Min(root);
+		maxNode = IsEmpty() ? null : Max(root);
+		if (tracker != null && tracker.Holds(key)) {
+			tracker.Refill();
+		}
+	}
+	private Node Delete(Node h, double key) {
+		if (Double.compare(key, h.key) < 0) {
+			if (!IsRed(h.left) && !IsRed(h.left.left)) {
+				h = MoveRedLeft(h);
+			}
+			h.left = Delete(h.left, key);
+		}
+		else {
+			if (IsRed(h.left)) {
+				h = RotateRight(h);
+			}
+			if (Double.compare(key, h.key) == 0 && (h.right == null)) {
+				return null;
+			}
+			if (!IsRed(h.right) && !IsRed(h.right.left)) {
+				h = MoveRedRight(h);
+			}
+			if (Double.compare(key, h.key) == 0) {
+				Node x = Min(h.right);
+				h.key = x.key;
+				h.val = x.val;
+				h.more = x.more;
+				h.right = DeleteMin(h.right);
+			}
+			else {
+				h.right = Delete(h.right, key);
+			}
+		}
+		return Balance(h);
+	}
+
+	/**
+	 * Helper functions for the delete
+	 */
+	private Node MoveRedLeft(Node h) {
+		FlipColors(h);
+		if (IsRed(h.right.left)) {
+			h.right = RotateRight(h.right);
+			h = RotateLeft(h);
+			FlipColors(h);
+		}
+		return h;
+	}
+	private Node MoveRedRight(Node h) {
+		FlipColors(h);
+		if (IsRed(h.left.left)) {
+			h = RotateRight(h);
+			FlipColors(h);
+		}
+		return h;
+	}
+	private Node DeleteMin(Node h) {
+		if (h.left == null) {
+			return null;
+		}
+		if (!IsRed(h.left) && !IsRed(h.left.left)) {
+			h = MoveRedLeft(h);
+		}
+
+		h.left = DeleteMin(h.left);
+		return Balance(h);
+	}
+
+	/**
+	 * Balances the tree with RotateLeft, RotateRight, and FlipColors
+	 */
+	private Node Balance(Node h) {
+		if (IsRed(h.right) && !IsRed(h.left)) {
+			h = RotateLeft(h);
+		}
+		if (IsRed(h.left) && IsRed(h.left.left)) {
+			h = RotateRight(h);
+		}
+		if (IsRed(h.left) && IsRed(h.right)) {
+			FlipColors(h);
+		}
+
+		Update(h);
+		return h;
+	}
+
+	/**
+	 * Returns the value for the given key or
+	 * NO_VALUE if the key is not in the tree
+	 * In multimap mode this is the first value that was inserted
+	 */
+	public int get(double key) {
+		Node x = Find(key);
+		if (x == null) return NO_VALUE;
+		return x.val;
+	}
+
+	/**
+	 * Returns every value of the given key in the order they were
+	 * inserted, or an empty array if the key is not in the tree
+	 */
+	public int[] getAll(double key) {
+		Node x = Find(key);
+		if (x == null) return new int[0];
+		int[] all = new int[Count(x)];
+		all[0] = x.val;
+		for (int i = 1; i < all.length; i++) {
+			all[i] = x.more[i];
+		}
+		return all;
+	}
+
+	/**
+	 * Returns the number of values the given key has,
+	 * 0 if it is not in the tree
+	 */
+	public int count(double key) {
+		Node x = Find(key);
+		if (x == null) return 0;
+		return Count(x);
+	}
+	private Node Find(double key) {
+		Node x = root;
+		while (x != null) {
+			int cmp = Double.compare(key, x.key);
+			if (cmp < 0) {
+				x = x.left;
+			}
+			else if (cmp > 0) {
+				x = x.right;
+			}
+			else {
+				return x;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns true if the key is in the tree
+	 */
+	public boolean Contains(double key) {
+		return Find(key) != null;
+	}
+
+	/**
+	 * Returns the minimum key
+	 */
+	public double min() {
+		if (IsEmpty()) throw new NoSuchElementException("calls min() with empty symbol table");
+		return minNode.key;
+	}
+	private Node Min(Node x) {
+		while (x.left != null) {
+			x = x.left;
+		}
+		return x;
+	}
+
+	/**
+	 * Returns the maximum key
+	 */
+	public double max() {
+		if (IsEmpty()) throw new NoSuchElementException("calls max() with empty symbol table");
+		return maxNode.key;
+	}
+	private Node Max(Node x) {
+		while (x.right != null) {
+			x = x.right;
+		}
+		return x;
+	}
+
+	/**
+	 * Order statistic methods, these use the size kept on every
+	 * node so each one only walks one path down the tree
+	 * rank(), select() and countInRange() count distinct keys
+	 * while percentile() counts every value of a multimap key
+	 */
+	// Returns the number of keys strictly less than the given key
+	public int rank(double key) {
+		int rank = 0;
+		Node x = root;
+		while (x != null) {
+			int cmp = Double.compare(key, x.key);
+			if (cmp < 0) {
+				x = x.left;
+			}
+			else if (cmp > 0) {
+				rank += 1 + Size(x.left);
+				x = x.right;
+			}
+			else {
+				return rank + Size(x.left);
+			}
+		}
+		return rank;
+	}
+
+	// Returns the key with the given rank, select(0) is the minimum
+	public double select(int rank) {
+		if (rank < 0 || rank >= size()) {
+			throw new IllegalArgumentException("argument to select() is invalid: " + rank);
+		}
+		Node x = root;
+		while (true) {
+			int leftSize = Size(x.left);
+			if (rank < leftSize) {
+				x = x.left;
+			}
+			else if (rank > leftSize) {
+				rank -= leftSize + 1;
+				x = x.right;
+			}
+			else {
+				return x.key;
+			}
+		}
+	}
+
+	// Returns the largest key less than or equal to the given key
+	public double floor(double key) {
+		Node x = root;
+		Node best = null;
+		while (x != null) {
+			int cmp = Double.compare(key, x.key);
+			if (cmp == 0) return x.key;
+			if (cmp < 0) {
+				x = x.left;
+			}
+			else {
+				best = x;
+				x = x.right;
+			}
+		}
+		if (best == null) throw new NoSuchElementException("argument to floor() is too small");
+		return best.key;
+	}
+
+	// Returns the smallest key greater than or equal to the given key
+	public double ceiling(double key) {
+		Node x = root;
+		Node best = null;
+		while (x != null) {
+			int cmp = Double.compare(key, x.key);
+			if (cmp == 0) return x.key;
+			if (cmp > 0) {
+				x = x.right;
+			}
+			else {
+				best = x;
+				x = x.left;
+			}
+		}
+		if (best == null) throw new NoSuchElementException("argument to ceiling() is too large");
+		return best.key;
+	}
+
+	// Returns the number of keys between lo and hi (inclusive)
+	public int countInRange(double lo, double hi) {
+		if (Double.compare(lo, hi) > 0) return 0;
+		if (Contains(hi)) return rank(hi) - rank(lo) + 1;
+		return rank(hi) - rank(lo);
+	}
+
+	/**
+	 * Returns the key at the given percentile using the nearest rank
+	 * method, ie. percentile(95) is the smallest key that is greater
+	 * than or equal to 95% of the values
+	 *
+	 * @param p From 0 to 100
+	 */
+	public double percentile(double p) {
+		if (IsEmpty()) throw new NoSuchElementException("calls percentile() with empty symbol table");
+		if (!(p >= 0 && p <= 100)) throw new IllegalArgumentException("argument to percentile() is invalid: " + p);
+
+		// Same as select() but walks by the number of values
+		int rank = RedBlackTree.PercentileRank(p, entries());
+		Node x = root;
+		while (true) {
+			int leftTotal = Total(x.left);
+			if (rank < leftTotal) {
+				x = x.left;
+			}
+			else if (rank >= leftTotal + Count(x)) {
+				rank -= leftTotal + Count(x);
+				x = x.right;
+			}
+			else {
+				return x.key;
+			}
+		}
+	}
+	// Returns the lower median when there are an even number of keys
+	public double median() {
+		return percentile(50);
+	}
+
+	/**
+	 * Returns all the keys in ascending order
+	 */
+	public double[] keys() {
+		if (IsEmpty()) return new double[0];
+		return keys(min(), max());
+	}
+
+	/**
+	 * Returns all the keys between lo and hi (inclusive)
+	 * in ascending order
+	 */
+	public double[] keys(double lo, double hi) {
+		double[] out = new double[size()];
+		int n = Keys(root, out, 0, lo, hi);
+		if (n == out.length) return out;
+		double[] trimmed = new double[n];
+		System.arraycopy(out, 0, trimmed, 0, n);
+		return trimmed;
+	}
+	/**
+	 * Copies every value and its key into the two arrays in key
+	 * order, a multimap key is copied once for each of its values
+	 * in the order they were inserted. Both need room for entries()
+	 */
+	public void copyTo(double[] keys, int[] vals) {
+		CopyTo(root, keys, vals, 0);
+	}
+	private int CopyTo(Node x, double[] keys, int[] vals, int n) {
+		if (x == null) return n;
+		n = CopyTo(x.left, keys, vals, n);
+		keys[n] = x.key;
+		vals[n++] = x.val;
+		for (int i = 1; i < Count(x); i++) {
+			keys[n] = x.key;
+			vals[n++] = x.more[i];
+		}
+		return CopyTo(x.right, keys, vals, n);
+	}
+
+	// Fills out starting at n and returns the next free index
+	private int Keys(Node x, double[] out, int n, double lo, double hi) {
+		if (x == null) return n;
+		int cmplo = Double.compare(lo, x.key);
+		int cmphi = Double.compare(hi, x.key);
+
+		if (cmplo < 0) {
+			n = Keys(x.left, out, n, lo, hi);
+		}
+		if (cmplo <= 0 && cmphi >= 0) {
+			out[n++] = x.key;
+		}
+		if (cmphi > 0) {
+			n = Keys(x.right, out, n, lo, hi);
+		}
+		return n;
+	}
+}
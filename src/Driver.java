@@ -1,6 +1,16 @@
-import java.io.File;
+import java.io.BufferedWriter;
+import java.io.FileWriter;
 import java.io.IOException;
-import java.util.Scanner;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 /**
  * This is the driver class for Program 2
@@ -10,138 +20,179 @@ import java.util.Scanner;
 public class Driver {
 	
 	// Initialize variables
-	private static Scanner fco2;	// file for co2
-	private static Scanner fsl;		// file for sea level
-	private static Scanner ft;		// file for temp
-	private static FileOut fout = new FileOut("WorldDataChange.txt");
-
+	private static boolean mapped = false;			// memory map the .csv files
+	private static boolean parallel = false;		// read the .csv files at the same time
+	private static int chunks = 1;					// pieces each .csv file is parsed in
+	private static boolean snapshot = false;		// keep the trees in .snap files between runs
+	private static boolean incremental = false;		// only read rows added since the last snapshot
+	private static boolean watch = false;			// keep running and update on file changes
+	private static int top = 0;						// also list this many lowest and highest readings
+	private static boolean stats = false;			// also print averages, changes and correlation
+	private static String join = null;				// write the datasets lined up by date to this file
+	private static int tolerance = 0;				// days a joined reading can be from its row's date
+	private static boolean entities = false;		// also keep and report every other entity
+	private static int rangeFrom, rangeTo;			// also summarize the readings between these dates
+	private static boolean range = false;
+	private static final String REPORT = "WorldDataChange.txt";
+	private static String json = null;				// also write the report as JSON to this file
+	private static boolean async = false;			// write the report on a background thread
+	private static ReportSink sink;
+	
+	// Milliseconds without another change before a changed file is read
+	private static final long WATCH_SETTLE = 200;
+	
 	/**
 	 * Opens the file
 	 * Reads the file
-	 * Takes the input, ensures that the date is made uniform ie (../../....)
-	 * Places the input data into each respective data class
+	 * Takes the input, ensures that the date is made uniform ie (15/1/1883)
+	 * Converts each reading with the transform of its Dataset
 	 * Places that data into the red black tree to be properly sorted (6 total)
 	 * 
 	 * Once the file has been fully read:
 	 * Prints the lowest and highest for each data type to 
 	 * the console and writes the same data to an output file
 	 * 
-	 * @param args Unused
+	 * @param args -mmap to memory map the .csv files instead of streaming them
+	 *             -parallel to read the three files on their own threads
+	 *             -chunks n to parse each file in n pieces at the same time
+	 *             -snapshot to load the trees from .snap files when the .csv
+	 *             files have not changed, and save them after a full load
+	 *             -incremental to also use the .snap files when rows were only
+	 *             added to the end of the .csv files, reading just the new rows
+	 *             -watch to keep running after the report is written, updating
+	 *             the trees and the report whenever a .csv file changes
+	 *             -top n to also list the n lowest and highest readings
+	 *             of each dataset at the end of the report
+	 *             -stats to also print the mean, the highest one year
+	 *             average and the latest yearly change of each dataset
+	 *             and how closely temperature follows CO2
+	 *             -join file to write every date with the temperature, sea
+	 *             level and CO2 reading on it to a .csv file
+	 *             -tolerance days to fill a joined row with the nearest
+	 *             reading at most that many days away, 45 lines the
+	 *             quarterly sea level up with the monthly readings
+	 *             -entities to keep the rows of every entity in the files,
+	 *             not just the world, and list the lowest and highest
+	 *             reading of each. The .snap files only hold the world
+	 *             rows so this turns -snapshot and -incremental off
+	 *             -range from to to also print the count, mean, lowest and
+	 *             highest reading of each dataset between the two dates
+	 *             (inclusive), written as year-month-day
+	 *             -json file to also write the report to a .json file
+	 *             -async to write the report on a background thread
 	 */
 	public static void main(String[] args) {
-		// Creation of 6 RBTs
-		// 3 contatin <info, date> and 3 are <date, info>
-		RedBlackTree<Double, String> temprbt = new RedBlackTree<Double, String>();
-		RedBlackTree<Double, String> searbt = new RedBlackTree<Double, String>();
-		RedBlackTree<Double, String> co2rbt = new RedBlackTree<Double, String>();
-		
-		RedBlackTree<String, Double> dtemp = new RedBlackTree<String, Double>();
-		RedBlackTree<String, Double> dsea = new RedBlackTree<String, Double>();
-		RedBlackTree<String, Double> dco2 = new RedBlackTree<String, Double>();
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-mmap")) {
+				mapped = true;
+			}
+			else if (args[i].equals("-parallel")) {
+				parallel = true;
+			}
+			else if (args[i].equals("-chunks") && i + 1 < args.length) {
+				chunks = Integer.parseInt(args[++i]);
+			}
+			else if (args[i].equals("-snapshot")) {
+				snapshot = true;
+			}
+			else if (args[i].equals("-incremental")) {
+				snapshot = true;
+				incremental = true;
+			}
+			else if (args[i].equals("-watch")) {
+				watch = true;
+			}
+			else if (args[i].equals("-top") && i + 1 < args.length) {
+				top = Integer.parseInt(args[++i]);
+			}
+			else if (args[i].equals("-stats")) {
+				stats = true;
+			}
+			else if (args[i].equals("-join") && i + 1 < args.length) {
+				join = args[++i];
+			}
+			else if (args[i].equals("-tolerance") && i + 1 < args.length) {
+				tolerance = Integer.parseInt(args[++i]);
+			}
+			else if (args[i].equals("-entities")) {
+				entities = true;
+			}
+			else if (args[i].equals("-range") && i + 2 < args.length) {
+				rangeFrom = DateKey.parse(args[++i]);
+				rangeTo = DateKey.parse(args[++i]);
+				range = true;
+			}
+			else if (args[i].equals("-json") && i + 1 < args.length) {
+				json = args[++i];
+			}
+			else if (args[i].equals("-async")) {
+				async = true;
+			}
+		}
+		if (entities) {
+			snapshot = false;
+			incremental = false;
+		}
 		
-		// Reading and writing data for the temperature
-		// File opening
+		// The report goes to the console, the output file
+		// and with -json a .json file, each line is formatted once
+		sink = new ReportSink(async);
+		sink.addConsole();
 		try {
-			ft = new Scanner(new File("temperature_anomaly.csv"));
+			sink.addFile(REPORT);
+			if (json != null) {
+				sink.addJson(json);
+			}
 		}
-		// This will catch any errors in reading the file
 		catch (IOException e) {
 			System.err.println(e);
 		}
 		
-		String tempdata;
-		String[] temparr;
-		// File reading
-		while (ft.hasNextLine()) {
-			tempdata = ft.nextLine();
-			temparr = tempdata.split(",");
+		// Creation of 2 RBTs per dataset, by default 3 datasets so 6 RBTs
+		// 1 contains <info, date> and 1 is <date, info>
+		// Dates are stored as epoch days so neither tree boxes its keys or values
+		// Much of the data is specific for the northern or southern
+		// hemispheres but we only care about world averages
+		List<Dataset> datasets = Dataset.all();
+		LoadedDataset[] loaded = new LoadedDataset[datasets.size()];
+		for (int i = 0; i < loaded.length; i++) {
+			loaded[i] = new LoadedDataset(datasets.get(i));
 			
-			// Checks if it's world data
-			// Much of the data is specific for the northern or southern
-			// hemispheres but we only care about world averages
-			if (temparr[0].equals("World")) {
-				// Sends raw info to the Temperature class to ensure
-				// that the information is uniform
-				// ie. dates are consistent and temp_anomaly is in F
-				Temperature rawtemp = new Temperature(temparr[2], temparr[3]);
-				
-				// Checks to see if the info is already in the rbt
-				// as there is a possiblity of repeats
-				if (!dtemp.Contains(rawtemp.tempDate())) {
-					temprbt.insert(rawtemp.tempInfo(), rawtemp.tempDate());
-					dtemp.insert(rawtemp.tempDate(), rawtemp.tempInfo());
-				}
+			// The lowest and highest readings are kept as the trees load
+			// so the lists cost nothing extra to print at the end
+			if (top > 0) {
+				loaded[i].byValue().track(top);
+			}
+			// Every entity is read in the same pass as the world rows
+			if (entities) {
+				loaded[i].indexEntities(top);
 			}
-		}
-		ft.close();
-		
-		// Reading and writing data for the sea level
-		// File opening
-		try {
-			fsl = new Scanner(new File("sea_level.csv"));
-		}
-		// This will catch any errors in reading the file
-		catch (IOException e) {
-			System.err.println(e);
 		}
 		
-		String sldata;
-		String[] slarr;
-		// File reading
-		while (fsl.hasNextLine()) {
-			sldata = fsl.nextLine();
-			slarr = sldata.split(",");
-			
-			// Checks if it's world data
-			// Avoids the first line this way
-			if (slarr[0].equals("World")) {
-				// Sends raw info to the SeaLevel class to ensure
-				// that information is uniform
-				SeaLevel rawsl = new SeaLevel(slarr[2], slarr[3]);
-				
-				// Checks to see if the info is already in the rbt
-				// as there is a possiblity of repeats
-				if (!dsea.Contains(rawsl.seaDate())) {
-					searbt.insert(rawsl.seaInfo(), rawsl.seaDate());
-					dsea.insert(rawsl.seaDate(), rawsl.seaInfo());
-				}
+		// The state of each file before it is read, so that watch
+		// mode knows which rows it has already seen
+		IngestState[] states = new IngestState[loaded.length];
+		if (watch) {
+			for (int i = 0; i < loaded.length; i++) {
+				states[i] = State(loaded[i].dataset().filename());
 			}
 		}
-		fsl.close();
 		
-		// Reading and writing data for the co2 levels
-		// File reading
-		try {
-			fco2 = new Scanner(new File("co2.csv"));
+		// Each file fills only its own two trees so
+		// the files can be read at the same time
+		Runnable[] loads = new Runnable[loaded.length];
+		for (int i = 0; i < loaded.length; i++) {
+			LoadedDataset dataset = loaded[i];
+			loads[i] = () -> Load(dataset);
 		}
-		// This will catch any errors in reading the file
-		catch (IOException e) {
-			System.err.println(e);
+		if (parallel) {
+			ParallelLoader.runAll(loads);
 		}
-		
-		String co2data;
-		String[] co2arr;
-		// File reading
-		while (fco2.hasNextLine()) {
-			co2data = fco2.nextLine();
-			co2arr = co2data.split(",");
-			
-			// Checks if it's world data
-			// Avoids the first line this way
-			if (co2arr[0].equals("World")) {
-				// Sends raw info to the CO2 class to ensure
-				// that the info is uniform
-				CO2 rawco2 = new CO2(co2arr[2], co2arr[3]);
-				
-				// Checks to see if the info is already in the rbt
-				// as there is a possibility of repeats
-				if (!dco2.Contains(rawco2.co2Date())) {
-					co2rbt.insert(rawco2.co2Info(), rawco2.co2Date());
-					dco2.insert(rawco2.co2Date(), rawco2.co2Info());
-				}
+		else {
+			for (Runnable load : loads) {
+				load.run();
 			}
 		}
-		fco2.close();
 		
 		// Now that all the date has been inserted into the rbts
 		// the mins and maxes of each tree will be printed to the console
@@ -149,111 +200,407 @@ public class Driver {
 		// for that date if it exists (ie. if the min for SeaLevel also has
 		// info in the other tree's with the same date then those are printed
 		// as well)
-		// High and low data for temps
-		double lowtemp = temprbt.min();
-		String dltemp = temprbt.get(lowtemp);
-		double hightemp = temprbt.max();
-		String dhtemp = temprbt.get(hightemp);
+		List<String> report = Report(loaded);
+		Print(report);
+		
+		// The whole history of every dataset lined up by date
+		if (join != null) {
+			Join(join, loaded);
+		}
+		
+		// Keeps the trees loaded and updates them as the files change
+		// Watch mode is left with Ctrl-C, so the report is closed by a
+		// shutdown hook then, which also ends the JSON array
+		if (watch) {
+			Runtime.getRuntime().addShutdownHook(new Thread(Driver::Close, "report-close"));
+			Watch(loaded, states, report, () -> Report(loaded));
+		}
 		
-		// High and low data for sea level
-		double lowsea = searbt.min();
-		String dlsea = searbt.get(lowsea);
-		double highsea = searbt.max();
-		String dhsea = searbt.get(highsea);
+		Close();
+	}
+	
+	// Writes whatever is still buffered and closes the files
+	private static void Close() {
+		try {
+			sink.close();
+		}
+		catch (IOException e) {
+			System.err.println(e);
+		}
+	}
+	
+	/**
+	 * Builds the lines of the report, the lowest and highest reading
+	 * of each dataset followed by the other readings on that date
+	 * Every date with the extreme reading is listed, not just one
+	 */
+	private static List<String> Report(LoadedDataset[] loaded) {
+		List<String> lines = new ArrayList<String>();
 		
-		// High and low data for co2
-		double lowco2 = co2rbt.min();
-		String dlco2 = co2rbt.get(lowco2);
-		double highco2 = co2rbt.max();
-		String dhco2 = co2rbt.get(highco2);
+		// High and low data for each dataset
+		for (int i = 0; i < loaded.length; i++) {
+			DoubleKeyedRedBlackTree tree = loaded[i].byValue();
+			String label = loaded[i].dataset().label();
+			if (i > 0) {
+				lines.add("");
+			}
+			// A file can be empty or being rewritten while watching
+			if (tree.IsEmpty()) {
+				lines.add("No " + label + " readings");
+				continue;
+			}
+			Extreme(lines, "Lowest " + label + ": ", tree.min(), loaded, i);
+			lines.add("");
+			Extreme(lines, "Highest " + label + ": ", tree.max(), loaded, i);
+		}
 		
-		// Printing to console and writing to output file
-		// Lowest temperature anomaly
-		System.out.println("Lowest temperature anomaly (F): " + lowtemp + " on " + dltemp);
-		fout.writer("Lowest temperature anomaly (F): " + lowtemp + " on " + dltemp);
-		if (dsea.Contains(dltemp)) {
-			System.out.println("On that same date, the average sea level rise was " + dsea.get(dltemp));
-			fout.writer("On that same date, the average sea level rise was " + dsea.get(dltemp));
-		}
-		if (dco2.Contains(dltemp)) {
-			System.out.println("On that same date, the average CO2 concentration was " + dco2.get(dltemp));
-			fout.writer("On that same date, the average CO2 concentration was " + dco2.get(dltemp));
+		// The lowest and highest few readings of each, with -top
+		if (top > 0) {
+			for (LoadedDataset dataset : loaded) {
+				Top(lines, dataset.dataset().label(), dataset.byValue().tracker());
+			}
 		}
 		
-		System.out.println();
-		fout.writer("");
-		// Highest temperature anomaly
-		System.out.println("Highest temperature anomaly (F): " + hightemp + " on " + dhtemp);
-		fout.writer("Highest temperature anomaly (F): " + hightemp + " on " + dhtemp);
-		if (dsea.Contains(dhtemp)) {
-			System.out.println("On that same date, the average sea level rise was " + dsea.get(dhtemp));
-			fout.writer("On that same date, the average sea level rise was " + dsea.get(dhtemp));
-		}
-		if (dco2.Contains(dhtemp)) {
-			System.out.println("On that same date, the average CO2 concentration was " + dco2.get(dhtemp));
-			fout.writer("On that same date, the average CO2 concentration was " + dco2.get(dhtemp));
+		// A summary of a date range, with -range
+		if (range) {
+			for (LoadedDataset dataset : loaded) {
+				Range(lines, dataset.dataset().label(), dataset.byDate());
+			}
 		}
 		
-		System.out.println();
-		fout.writer("");
-		// Lowest sea level rise
-		System.out.println("Lowest sea level rise: " + lowsea + " on " + dlsea);
-		fout.writer("Lowest sea level rise: " + lowsea + " on " + dlsea);
-		if (dtemp.Contains(dlsea)) {
-			System.out.println("On that same date, the temperature anomaly (F) was " + dtemp.get(dlsea));
-			fout.writer("On that same date, the temperature anomaly (F) was " + dtemp.get(dlsea));
-		}
-		if (dco2.Contains(dlsea)) {
-			System.out.println("On that same date, the average CO2 concentration was " + dco2.get(dlsea));
-			fout.writer("On that same date, the average CO2 concentration was " + dco2.get(dlsea));
+		// The extremes of every other entity, with -entities
+		if (entities) {
+			for (LoadedDataset dataset : loaded) {
+				Entities(lines, dataset);
+			}
 		}
 		
-		System.out.println();
-		fout.writer("");
-		// Highest sea level rise
-		System.out.println("Highest sea level rise: " + highsea + " on " + dhsea);
-		fout.writer("Highest sea level rise: " + highsea + " on " + dhsea);
-		if (dtemp.Contains(dhsea)) {
-			System.out.println("On that same date, the temperature anomaly (F) was " + dtemp.get(dhsea));
-			fout.writer("On that same date, the temperature anomaly (F) was " + dtemp.get(dhsea));
-		}
-		if (dco2.Contains(dhsea)) {
-			System.out.println("On that same date, the average CO2 concentration was " + dco2.get(dhsea));
-			fout.writer("On that same date, the average CO2 concentration was " + dco2.get(dhsea));
+		// Scans of the whole history, with -stats
+		// The series are copied from the <date, info> trees each time
+		// so watch mode always sees the latest readings
+		if (stats) {
+			ColumnarSeries[] series = new ColumnarSeries[loaded.length];
+			for (int i = 0; i < loaded.length; i++) {
+				series[i] = ColumnarSeries.of(loaded[i].byDate());
+				Stats(lines, loaded[i].dataset().label(), series[i]);
+			}
+			lines.add("");
+			for (int i = 0; i < loaded.length; i++) {
+				for (int j = i + 1; j < loaded.length; j++) {
+					lines.add("Correlation between " + loaded[i].dataset().label() + " and "
+							+ loaded[j].dataset().label() + ": " + Round(series[i].correlation(series[j])));
+				}
+			}
+		}
+		return lines;
+	}
+	
+	/**
+	 * Adds the lowest and highest reading of every entity in the
+	 * dataset's file other than the one in the main report
+	 */
+	private static void Entities(List<String> lines, LoadedDataset dataset) {
+		EntityIndex index = dataset.index();
+		String label = dataset.dataset().label();
+		for (int id = 0; id < index.size(); id++) {
+			DoubleKeyedRedBlackTree tree = index.byValue(id);
+			if (index.name(id).equals(dataset.dataset().entity()) || tree.IsEmpty()) continue;
+			lines.add("");
+			lines.add("Lowest " + label + " in " + index.name(id) + ": " + tree.min()
+					+ " on " + DateKey.format(tree.get(tree.min())));
+			lines.add("Highest " + label + " in " + index.name(id) + ": " + tree.max()
+					+ " on " + DateKey.format(tree.get(tree.max())));
+			if (top > 0) {
+				Top(lines, label + " in " + index.name(id), tree.tracker());
+			}
+		}
+	}
+	
+	/**
+	 * Adds the count, mean, lowest and highest reading between the
+	 * -range dates, O(log n) from the subtree totals of the tree
+	 */
+	private static void Range(List<String> lines, String label, IntDateKeyedRedBlackTree tree) {
+		IntDateKeyedRedBlackTree.Summary summary = tree.aggregate(rangeFrom, rangeTo);
+		lines.add("");
+		String dates = " from " + DateKey.format(rangeFrom) + " to " + DateKey.format(rangeTo);
+		if (summary.count() == 0) {
+			lines.add("No " + label + " readings" + dates);
+			return;
+		}
+		lines.add("The " + label + dates + ": " + summary.count() + " readings, mean " + Round(summary.mean())
+				+ ", lowest " + summary.min() + ", highest " + summary.max());
+	}
+	
+	/**
+	 * Adds the mean, the highest one year average and the
+	 * latest change from a year earlier of the series
+	 */
+	private static void Stats(List<String> lines, String label, ColumnarSeries series) {
+		lines.add("");
+		if (series.IsEmpty()) {
+			lines.add("No " + label + " readings");
+			return;
 		}
+		int n = series.size();
+		lines.add("The " + label + " from " + DateKey.format(series.day(0)) + " to " + DateKey.format(series.day(n - 1))
+				+ ": mean " + Round(series.mean()));
 		
-		System.out.println();
-		fout.writer("");
-		// Lowest average co2 concentration
-		System.out.println("Lowest average CO2 concentration: " + lowco2 + " on " + dlco2);
-		fout.writer("Lowest average CO2 concentration: " + lowco2 + " on " + dlco2);
-		if (dtemp.Contains(dlco2)) {
-			System.out.println("On that same date, the temperature anomaly (F) was " + dtemp.get(dlco2));
-			fout.writer("On that same date, the temperature anomaly (F) was " + dtemp.get(dlco2));
-		}
-		if (dsea.Contains(dlco2)) {
-			System.out.println("On that same date, the average sea level rise was " + dsea.get(dlco2));
-			fout.writer("On that same date, the average sea level rise was " + dsea.get(dlco2));
+		double[] rolling = series.rollingMean(365);
+		int best = 0;
+		for (int i = 1; i < n; i++) {
+			if (rolling[i] > rolling[best]) {
+				best = i;
+			}
 		}
+		lines.add("Highest one year average: " + Round(rolling[best]) + " ending on " + DateKey.format(series.day(best)));
 		
-		System.out.println();
-		fout.writer("");
-		// Highest average co2 concentration
-		System.out.println("Highest average CO2 concentration: " + highco2 + " on " + dhco2);
-		fout.writer("Highest average CO2 concentration: " + highco2 + " on " + dhco2);
-		if (dtemp.Contains(dhco2)) {
-			System.out.println("On that same date, the temperature anomaly (F) was " + dtemp.get(dhco2));
-			fout.writer("On that same date, the temperature anomaly (F) was " + dtemp.get(dhco2));
-		}
-		if (dsea.Contains(dhco2)) {
-			System.out.println("On that same date, the average sea level rise was " + dsea.get(dhco2));
-			fout.writer("On that same date, the average sea level rise was " + dsea.get(dhco2));
+		double[] delta = series.yearOverYear();
+		for (int i = n - 1; i >= 0; i--) {
+			if (!Double.isNaN(delta[i])) {
+				lines.add("Latest change from a year earlier: " + Round(delta[i]) + " on " + DateKey.format(series.day(i)));
+				break;
+			}
+		}
+	}
+	
+	// Rounds to two decimal places like the readings themselves
+	private static double Round(double value) {
+		return Math.round(value * 100.0) / 100.0;
+	}
+	
+	/**
+	 * Adds the lowest and highest readings kept by the tracker
+	 */
+	private static void Top(List<String> lines, String label, ExtremesTracker tracker) {
+		lines.add("");
+		lines.add("Lowest " + tracker.lowCount() + " readings of " + label + ":");
+		for (int i = 0; i < tracker.lowCount(); i++) {
+			lines.add("  " + tracker.lowValue(i) + " on " + DateKey.format(tracker.lowDay(i)));
+		}
+		lines.add("");
+		lines.add("Highest " + tracker.highCount() + " readings of " + label + ":");
+		for (int i = 0; i < tracker.highCount(); i++) {
+			lines.add("  " + tracker.highValue(i) + " on " + DateKey.format(tracker.highDay(i)));
+		}
+	}
+	
+	/**
+	 * Adds a line for every date with the given reading, each followed
+	 * by the readings of the other datasets on that date if they have one
+	 * 
+	 * @param self Index of the dataset the reading is from
+	 */
+	private static void Extreme(List<String> lines, String label, double value, LoadedDataset[] loaded, int self) {
+		for (int day : loaded[self].byValue().getAll(value)) {
+			lines.add(label + value + " on " + DateKey.format(day));
+			for (int i = 0; i < loaded.length; i++) {
+				if (i == self) continue;
+				double other = loaded[i].byDate().getOrDefault(day, Double.NaN);
+				if (!Double.isNaN(other)) {
+					lines.add("On that same date, the " + loaded[i].dataset().sameLabel() + " was " + other);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Writes the datasets joined on their dates to a .csv file
+	 * The trees are copied into arrays in date order and merged in one
+	 * pass, instead of looking every date up in the other trees
+	 */
+	private static void Join(String filename, LoadedDataset[] loaded) {
+		ColumnarSeries[] series = new ColumnarSeries[loaded.length];
+		String[] names = new String[loaded.length];
+		for (int i = 0; i < loaded.length; i++) {
+			series[i] = ColumnarSeries.of(loaded[i].byDate());
+			names[i] = loaded[i].dataset().name();
+		}
+		SeriesJoin joined = SeriesJoin.of(tolerance, series);
+		try (Writer out = new BufferedWriter(new FileWriter(filename), 1 << 16)) {
+			joined.write(out, names);
+		}
+		// This will catch any errors in writing the file
+		catch (IOException e) {
+			System.err.println(e);
+		}
+	}
+	
+	/**
+	 * Prints the report to the console and writes it to the output file
+	 * It is flushed at the end so the whole report is out even while
+	 * watch mode keeps running
+	 */
+	private static void Print(List<String> report) {
+		try {
+			for (String line : report) {
+				sink.line(line);
+			}
+			sink.flush();
+		}
+		// This will catch any errors in writing the report
+		catch (IOException e) {
+			System.err.println(e);
+		}
+	}
+	
+	/**
+	 * Waits for the .csv files to change and applies the changes to the
+	 * trees that are already loaded. Rows added to the end of a file are
+	 * read on their own, any other change reloads that file. The report
+	 * is only printed and written again when one of its lines changed,
+	 * ie. when an extreme or one of the readings on its date changed
+	 * 
+	 * Runs until the program is stopped
+	 * 
+	 * @param states The state of each file when it was last read
+	 * @param report The report that was last written
+	 * @param rebuild Builds the report from the trees
+	 */
+	private static void Watch(LoadedDataset[] loaded, IngestState[] states, List<String> report,
+			Supplier<List<String>> rebuild) {
+		Path dir = Paths.get("").toAbsolutePath();
+		try (WatchService watcher = dir.getFileSystem().newWatchService()) {
+			dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+			while (true) {
+				WatchKey key = watcher.take();
+				// A file is often written in several steps, so waits
+				// until nothing has changed for a moment
+				do {
+					key.pollEvents();
+					key.reset();
+				} while ((key = watcher.poll(WATCH_SETTLE, TimeUnit.MILLISECONDS)) != null);
+				
+				boolean changed = false;
+				for (int i = 0; i < loaded.length; i++) {
+					if (states[i] != null && states[i].isCurrent(loaded[i].dataset().filename())) continue;
+					try {
+						states[i] = Update(loaded[i], states[i]);
+						changed = true;
+					}
+					catch (IOException e) {
+						System.err.println(e);
+					}
+				}
+				if (!changed) continue;
+				
+				List<String> latest = rebuild.get();
+				if (!latest.equals(report)) {
+					report = latest;
+					// Empties the files, the console gets a blank line
+					try {
+						sink.restart();
+					}
+					catch (IOException e) {
+						System.err.println(e);
+					}
+					Print(report);
+				}
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		catch (IOException e) {
+			System.err.println(e);
+		}
+	}
+	
+	/**
+	 * Brings the trees of one file up to date with the file. Only the
+	 * rows after the old state are read if nothing before them changed,
+	 * otherwise the trees are emptied and the whole file is read
+	 * 
+	 * @return The state of the file that was read
+	 */
+	private static IngestState Update(LoadedDataset dataset, IngestState old) throws IOException {
+		String filename = dataset.dataset().filename();
+		// One pass over the file finds the new state and checks the old one
+		IngestState now = IngestState.of(filename, old);
+		// Only up to the end of the last complete line, a row that is
+		// still being written is read once its line is finished
+		if (now.follows(old)) {
+			dataset.read(mapped, old.offset(), now.offset(), 1);
+		}
+		else {
+			dataset.clear();
+			dataset.read(mapped, 0, now.offset(), 1);
+		}
+		if (snapshot) {
+			TreeSnapshot.write(filename + ".snap", now, dataset.byDate(), dataset.byValue());
+		}
+		return now;
+	}
+	
+	// The state of the file, or null if it can not be read
+	private static IngestState State(String filename) {
+		try {
+			return IngestState.of(filename);
+		}
+		catch (IOException e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * Reads the rows of one dataset's .csv file
+	 * Every dataset goes through this same loop, the date and the
+	 * reading are parsed straight from the file and handed to the
+	 * dataset's handler
+	 * 
+	 * With -snapshot the trees are loaded from the file's snapshot
+	 * instead if it is still up to date, and a new snapshot is saved
+	 * after the file has been read
+	 * With -incremental a snapshot of an older version of the file is
+	 * also used as long as the file only had rows added to its end,
+	 * then only those rows are read. Anything else reads the whole file
+	 * 
+	 * @param dataset The dataset to read and the trees it fills
+	 */
+	private static void Load(LoadedDataset dataset) {
+		String filename = dataset.dataset().filename();
+		IntDateKeyedRedBlackTree bydate = dataset.byDate();
+		DoubleKeyedRedBlackTree byvalue = dataset.byValue();
+		String snapfile = filename + ".snap";
+		if (snapshot) {
+			try {
+				IngestState saved = TreeSnapshot.state(snapfile);
+				if (saved != null && saved.isCurrent(filename)) {
+					TreeSnapshot.read(snapfile, bydate, byvalue);
+					return;
+				}
+				if (saved != null && incremental) {
+					// One pass over the file finds the new state and checks the saved one
+					IngestState now = IngestState.of(filename, saved);
+					if (now.follows(saved)) {
+						TreeSnapshot.read(snapfile, bydate, byvalue);
+						// Only up to the end of the last complete line when now was
+						// taken, a row that is still being written is left for next time
+						dataset.read(mapped, saved.offset(), now.offset(), 1);
+						TreeSnapshot.write(snapfile, now, bydate, byvalue);
+						return;
+					}
+				}
+			}
+			// A bad snapshot is ignored and the .csv is read instead
+			catch (IOException e) {
+				System.err.println(e);
+			}
+		}
+		
+		try {
+			// Taken first so rows added while reading are read again next time
+			// and only read up to its offset, so a half written last row is
+			// left for the next load instead of being saved in the snapshot
+			IngestState state = snapshot ? IngestState.of(filename) : null;
+			dataset.read(mapped, 0, snapshot ? state.offset() : Long.MAX_VALUE, chunks);
+			if (snapshot) {
+				TreeSnapshot.write(snapfile, state, bydate, byvalue);
+			}
+		}
+		// This will catch any errors in reading the file
+		catch (IOException e) {
+			System.err.println(e);
 		}
 	}
 }
-
-
-
-
-
-
@@ -0,0 +1,87 @@
+import java.util.Random;
+
+/**
+ * Compares the memory use and speed of the two red black tree
+ * storage engines (RedBlackTree and ArrayRedBlackTree)
+ *
+ * Both trees are filled with the same key and value objects so
+ * the memory difference is only the cost of the nodes themselves
+ *
+ * Usage: java EngineComparison [number of keys]
+ *
+ * @author Bryce Lehnen
+ */
+public class EngineComparison {
+
+	/**
+	 * Runs each engine a few times and prints the results
+	 * of the last run so the JIT has warmed up
+	 *
+	 * @param args Optional number of keys, 1000000 by default
+	 */
+	public static void main(String[] args) {
+		int n = 1000000;
+		if (args.length > 0) {
+			n = Integer.parseInt(args[0]);
+		}
+
+		// Creates the keys and values once so both engines share them
+		Random random = new Random(232);
+		Double[] keys = new Double[n];
+		Integer[] vals = new Integer[n];
+		for (int i = 0; i < n; i++) {
+			keys[i] = random.nextDouble();
+			vals[i] = i;
+		}
+
+		for (int run = 0; run < 3; run++) {
+			boolean last = run == 2;
+			Measure("object nodes", false, keys, vals, last);
+			Measure("array nodes ", true, keys, vals, last);
+		}
+	}
+
+	/**
+	 * Fills one engine with every key, looks every key back up
+	 * and prints the bytes per entry and the time taken
+	 */
+	private static void Measure(String name, boolean arrayBacked, Double[] keys, Integer[] vals, boolean print) {
+		long before = UsedMemory();
+		OrderedSymbolTable<Double, Integer> table = OrderedSymbolTable.create(arrayBacked);
+
+		long start = System.nanoTime();
+		for (int i = 0; i < keys.length; i++) {
+			table.insert(keys[i], vals[i]);
+		}
+		long inserted = System.nanoTime();
+		long found = 0;
+		for (int i = 0; i < keys.length; i++) {
+			if (table.get(keys[i]) != null) {
+				found++;
+			}
+		}
+		long searched = System.nanoTime();
+
+		long after = UsedMemory();
+		if (print) {
+			System.out.printf("%s: %6.1f bytes/entry, insert %8.1f ns/op, get %8.1f ns/op (%d found)%n",
+					name, (double) (after - before) / keys.length,
+					(double) (inserted - start) / keys.length,
+					(double) (searched - inserted) / keys.length, found);
+		}
+
+		// Keeps the table reachable until memory has been measured
+		if (table.size() != keys.length) {
+			System.err.println(name + " lost keys: " + table.size());
+		}
+	}
+
+	// Heap in use after asking the JVM to collect garbage
+	private static long UsedMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
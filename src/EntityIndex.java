@@ -0,0 +1,221 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Keeps the rows of every entity in a dataset's .csv file instead of
+ * only the world rows, as a <date, info> and an <info, date> tree per
+ * entity (World, Northern Hemisphere, each country, ...)
+ *
+ * Each entity name is interned to an int id the first time it is seen
+ * The ids are found with a hash of the name's bytes straight out of the
+ * CsvReader buffer, so no String is made for a row, and since the OWID
+ * files keep the rows of an entity together the last id is checked
+ * before the hash table. The bytes kept for an entity are copied raw
+ * from the file, so a name with accents matches its rows the same as
+ * any other, and only the String name is decoded (as UTF-8). The whole file is indexed in one pass and any
+ * entity can then be looked at without reading the file again
+ *
+ * The extremes of an entity are the min() and max() of its <info, date>
+ * tree, which are O(1). With a top count every tree also gets an
+ * ExtremesTracker (see DoubleKeyedRedBlackTree.track())
+ *
+ * @author Bryce Lehnen
+ */
+public class EntityIndex {
+
+	private static final int INITIAL = 16;
+
+	private final Dataset dataset;
+	private final int top;
+
+	// Indexed by entity id
+	private String[] names = new String[INITIAL];
+	private byte[][] bytes = new byte[INITIAL][];
+	private int[] hashes = new int[INITIAL];
+	private IntDateKeyedRedBlackTree[] byDate = new IntDateKeyedRedBlackTree[INITIAL];
+	private DoubleKeyedRedBlackTree[] byValue = new DoubleKeyedRedBlackTree[INITIAL];
+	private int count;
+
+	// Open addressing table of id + 1, 0 is an empty slot
+	private int[] table = new int[INITIAL * 2];
+	private int last = -1;		// Id of the entity of the last row
+
+	/**
+	 * Creates an empty index for the dataset
+	 *
+	 * @param dataset Says which file and columns to read
+	 * @param top Tracks this many lowest and highest readings of
+	 *            every entity, 0 for none
+	 */
+	public EntityIndex(Dataset dataset, int top) {
+		this.dataset = dataset;
+		this.top = top;
+	}
+
+	/**
+	 * Uses the given trees for the entity instead of new ones, so
+	 * trees that are already used elsewhere are filled by the same pass
+	 *
+	 * @return The id of the entity
+	 */
+	public int attach(String entity, IntDateKeyedRedBlackTree byDate, DoubleKeyedRedBlackTree byValue) {
+		if (id(entity) >= 0) throw new IllegalArgumentException("entity already indexed: " + entity);
+		return NewEntity(entity, entity.getBytes(StandardCharsets.UTF_8), byDate, byValue);
+	}
+
+	/**
+	 * Reads every row of the dataset's .csv file into the trees of its entity
+	 *
+	 * @param mapped True to memory map the file instead of streaming it
+	 * @param from Where to start in the file, 0 for the whole file
+	 * @param to Where to stop, Long.MAX_VALUE for the rest of the file
+	 */
+	public void read(boolean mapped, long from, long to) throws IOException {
+		int dateCol = dataset.dateColumn();
+		int valueCol = dataset.valueColumn();
+		try (CsvReader reader = new CsvReader(dataset.filename(), mapped, from, to)) {
+			// The first line of the file is the header
+			if (from == 0 && !reader.next()) return;
+			while (reader.next()) {
+				int id = Intern(reader, 0);
+				int day = reader.dateField(dateCol);
+				double info = dataset.transform(reader.doubleField(valueCol));
+				if (byDate[id].addIfAbsent(day, info)) {
+					byValue[id].insert(info, day);
+				}
+			}
+		}
+	}
+
+	// Empties the trees of every entity, the ids are kept
+	public void clear() {
+		for (int i = 0; i < count; i++) {
+			byDate[i].clear();
+			byValue[i].clear();
+		}
+	}
+
+	// Returns the number of entities
+	public int size() {
+		return count;
+	}
+	// Returns the name of the entity with the given id
+	public String name(int id) {
+		Check(id);
+		return names[id];
+	}
+
+	/**
+	 * Returns the id of the entity, or -1 if it has no rows
+	 */
+	public int id(String entity) {
+		byte[] name = entity.getBytes(StandardCharsets.UTF_8);
+		int h = Arrays.hashCode(name);
+		int mask = table.length - 1;
+		for (int i = Spread(h) & mask; table[i] != 0; i = (i + 1) & mask) {
+			int id = table[i] - 1;
+			if (hashes[id] == h && Arrays.equals(bytes[id], name)) return id;
+		}
+		return -1;
+	}
+
+	// Returns the <date, info> tree of the entity
+	public IntDateKeyedRedBlackTree byDate(int id) {
+		Check(id);
+		return byDate[id];
+	}
+	// Returns the <info, date> tree of the entity
+	public DoubleKeyedRedBlackTree byValue(int id) {
+		Check(id);
+		return byValue[id];
+	}
+
+	// Returns the lowest reading of the entity
+	public double min(int id) {
+		return byValue(id).min();
+	}
+	// Returns the highest reading of the entity
+	public double max(int id) {
+		return byValue(id).max();
+	}
+
+	/**
+	 * Returns the id of the entity in the given column of the
+	 * current row, adding it if it is new
+	 */
+	private int Intern(CsvReader reader, int col) {
+		// Rows of the same entity are usually next to each other
+		if (last >= 0 && reader.fieldEquals(col, bytes[last])) return last;
+
+		int h = reader.fieldHash(col);
+		int mask = table.length - 1;
+		for (int i = Spread(h) & mask; table[i] != 0; i = (i + 1) & mask) {
+			int id = table[i] - 1;
+			if (hashes[id] == h && reader.fieldEquals(col, bytes[id])) {
+				last = id;
+				return id;
+			}
+		}
+		// The name is only decoded once, its raw bytes are what rows are matched against
+		byte[] raw = reader.fieldBytes(col);
+		last = NewEntity(new String(raw, StandardCharsets.UTF_8), raw,
+				new IntDateKeyedRedBlackTree(), new DoubleKeyedRedBlackTree(true));
+		return last;
+	}
+
+	// Adds an entity with the given name, its bytes in the file and trees, and returns its id
+	private int NewEntity(String entity, byte[] raw, IntDateKeyedRedBlackTree dates, DoubleKeyedRedBlackTree values) {
+		if (count == names.length) {
+			int size = count * 2;
+			names = Arrays.copyOf(names, size);
+			bytes = Arrays.copyOf(bytes, size);
+			hashes = Arrays.copyOf(hashes, size);
+			byDate = Arrays.copyOf(byDate, size);
+			byValue = Arrays.copyOf(byValue, size);
+		}
+		if ((count + 1) * 2 > table.length) {
+			Rehash(table.length * 2);
+		}
+
+		int id = count++;
+		names[id] = entity;
+		bytes[id] = raw;
+		hashes[id] = Arrays.hashCode(bytes[id]);
+		byDate[id] = dates;
+		byValue[id] = values;
+		if (top > 0 && values.tracker() == null) {
+			values.track(top);
+		}
+		Place(id);
+		return id;
+	}
+
+	// Puts the id into the first free slot for its hash
+	private void Place(int id) {
+		int mask = table.length - 1;
+		int i = Spread(hashes[id]) & mask;
+		while (table[i] != 0) {
+			i = (i + 1) & mask;
+		}
+		table[i] = id + 1;
+	}
+
+	// Moves every id into a new table of the given size
+	private void Rehash(int size) {
+		table = new int[size];
+		for (int id = 0; id < count; id++) {
+			Place(id);
+		}
+	}
+
+	// Mixes the high bits into the low ones, as java.util.HashMap does
+	private static int Spread(int h) {
+		return h ^ (h >>> 16);
+	}
+
+	// Throws if there is no entity with the id
+	private void Check(int id) {
+		if (id < 0 || id >= count) throw new IndexOutOfBoundsException("no entity with id " + id);
+	}
+}
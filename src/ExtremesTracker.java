@@ -0,0 +1,144 @@
+/**
+ * Keeps the k lowest and the k highest <info, date> entries of a
+ * DoubleKeyedRedBlackTree up to date while it is being loaded
+ *
+ * Each end is a small sorted array. A new entry is checked against the
+ * last entry of each array first, so most inserts during a load cost
+ * O(1) and only one that makes the list costs O(k) to shift it in.
+ * Entries with the same value stay in the order they were added, the
+ * same order getAll() gives them in. Deleting or overwriting an entry
+ * that is in a list makes the tracker refill it from the tree
+ *
+ * Made by DoubleKeyedRedBlackTree.track()
+ *
+ * @author Bryce Lehnen
+ */
+public class ExtremesTracker {
+
+	private final DoubleKeyedRedBlackTree tree;
+	private final int k;
+
+	private final double[] lowValues;	// Lowest first
+	private final int[] lowDays;
+	private int lows;
+	private final double[] highValues;	// Highest first
+	private final int[] highDays;
+	private int highs;
+
+	ExtremesTracker(DoubleKeyedRedBlackTree tree, int k) {
+		if (k < 1) throw new IllegalArgumentException("track() needs k of at least 1: " + k);
+		this.tree = tree;
+		this.k = k;
+		lowValues = new double[k];
+		lowDays = new int[k];
+		highValues = new double[k];
+		highDays = new int[k];
+	}
+
+	// How many entries are kept at each end
+	public int k() {
+		return k;
+	}
+
+	// Number of entries in the low list, less than k if the tree is smaller
+	public int lowCount() {
+		return lows;
+	}
+	// The i-th lowest value, lowValue(0) is the minimum
+	public double lowValue(int i) {
+		if (i < 0 || i >= lows) throw new IndexOutOfBoundsException("argument to lowValue() is invalid: " + i);
+		return lowValues[i];
+	}
+	// The date of the i-th lowest value
+	public int lowDay(int i) {
+		if (i < 0 || i >= lows) throw new IndexOutOfBoundsException("argument to lowDay() is invalid: " + i);
+		return lowDays[i];
+	}
+
+	// Number of entries in the high list, less than k if the tree is smaller
+	public int highCount() {
+		return highs;
+	}
+	// The i-th highest value, highValue(0) is the maximum
+	public double highValue(int i) {
+		if (i < 0 || i >= highs) throw new IndexOutOfBoundsException("argument to highValue() is invalid: " + i);
+		return highValues[i];
+	}
+	// The date of the i-th highest value
+	public int highDay(int i) {
+		if (i < 0 || i >= highs) throw new IndexOutOfBoundsException("argument to highDay() is invalid: " + i);
+		return highDays[i];
+	}
+
+	/**
+	 * Called by the tree after it inserted <key, val>
+	 *
+	 * @param overwrite True if the key was already in the tree and
+	 *                  its old value was replaced by val
+	 */
+	void Add(double key, int val, boolean overwrite) {
+		if (overwrite && Holds(key)) {
+			Refill();
+			return;
+		}
+		lows = Place(lowValues, lowDays, lows, key, val, 1);
+		highs = Place(highValues, highDays, highs, key, val, -1);
+	}
+
+	/**
+	 * Puts <key, val> into one of the lists if it belongs there
+	 * sign is 1 for the low list and -1 for the high list
+	 * Returns the new number of entries in the list
+	 */
+	private int Place(double[] values, int[] days, int count, double key, int val, int sign) {
+		// Goes after every entry that is not worse, so ties keep their order
+		if (count == k && sign * Double.compare(key, values[count - 1]) >= 0) return count;
+
+		int i = count == k ? count - 1 : count;
+		while (i > 0 && sign * Double.compare(key, values[i - 1]) < 0) {
+			values[i] = values[i - 1];
+			days[i] = days[i - 1];
+			i--;
+		}
+		values[i] = key;
+		days[i] = val;
+		return count == k ? count : count + 1;
+	}
+
+	// Returns true if either list has an entry with the given key
+	boolean Holds(double key) {
+		for (int i = 0; i < lows; i++) {
+			if (Double.compare(lowValues[i], key) == 0) return true;
+		}
+		for (int i = 0; i < highs; i++) {
+			if (Double.compare(highValues[i], key) == 0) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Rebuilds both lists from the tree, walking the keys from each
+	 * end with select() until k entries are found. O(k log n)
+	 */
+	void Refill() {
+		lows = 0;
+		highs = 0;
+		int size = tree.size();
+		for (int rank = 0; rank < size && lows < k; rank++) {
+			double key = tree.select(rank);
+			for (int day : tree.getAll(key)) {
+				if (lows == k) break;
+				lowValues[lows] = key;
+				lowDays[lows++] = day;
+			}
+		}
+		for (int rank = size - 1; rank >= 0 && highs < k; rank--) {
+			double key = tree.select(rank);
+			for (int day : tree.getAll(key)) {
+				if (highs == k) break;
+				highValues[highs] = key;
+				highDays[highs++] = day;
+			}
+		}
+	}
+}
@@ -0,0 +1,146 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Remembers how much of a .csv file has been loaded so that the next
+ * load can tell whether the file is the same, has only had rows
+ * added to its end, or has been changed somewhere before that
+ *
+ * The offset is the end of the last complete line when the file was
+ * looked at and the fingerprint is the CRC32 of every byte before it.
+ * If the file still starts with those same bytes only the rows from
+ * the offset on need to be read. A last line without a \n is left
+ * after the offset since more may still be written to it, so reading
+ * only up to offset() never parses a half written row
+ *
+ * @author Bryce Lehnen
+ */
+public class IngestState {
+
+	private static final int WINDOW = 1 << 26;	// 64 MB mapped at a time
+
+	private final long offset;		// Bytes covered by the fingerprint
+	private final long fingerprint;	// CRC32 of the first offset bytes
+	private final long length;		// Length of the file
+	private final long modified;	// Last modified time of the file
+	private final IngestState base;	// Set by of(filename, old) if the file only grew since old
+
+	/**
+	 * Creates the state from values that were saved earlier
+	 */
+	public IngestState(long offset, long fingerprint, long length, long modified) {
+		this(offset, fingerprint, length, modified, null);
+	}
+	private IngestState(long offset, long fingerprint, long length, long modified, IngestState base) {
+		this.offset = offset;
+		this.fingerprint = fingerprint;
+		this.length = length;
+		this.modified = modified;
+		this.base = base;
+	}
+
+	/**
+	 * Looks at the file as it is now. This should be done before the
+	 * file is read so that rows added while reading are read again
+	 * next time instead of being missed
+	 *
+	 * @param filename The .csv file
+	 * @return The state of the file
+	 */
+	public static IngestState of(String filename) throws IOException {
+		return of(filename, null);
+	}
+
+	/**
+	 * The same as of(filename) but also checks whether the file still
+	 * starts with the bytes old covered, see follows(). The CRC32 of
+	 * the first old.offset() bytes is carried on to the new offset
+	 * so the file is only read once instead of once for each check
+	 *
+	 * @param filename The .csv file
+	 * @param old An earlier state of the file, or null
+	 * @return The state of the file
+	 */
+	public static IngestState of(String filename, IngestState old) throws IOException {
+		File file = new File(filename);
+		long modified = file.lastModified();
+		try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+			long length = channel.size();
+			long offset = LastLineEnd(channel, length);
+			CRC32 crc = new CRC32();
+			boolean prefix = false;
+			if (old != null && old.offset <= offset) {
+				Update(crc, channel, 0, old.offset);
+				prefix = crc.getValue() == old.fingerprint;
+				Update(crc, channel, old.offset, offset);
+			}
+			else {
+				Update(crc, channel, 0, offset);
+			}
+			return new IngestState(offset, crc.getValue(), length, modified, prefix ? old : null);
+		}
+	}
+
+	/**
+	 * Returns true if this state was taken by of(filename, old) and the
+	 * file still started with the bytes old covered, so only the rows
+	 * from old.offset() to offset() are new
+	 */
+	public boolean follows(IngestState old) {
+		return old != null && base == old;
+	}
+
+	public long offset() {
+		return offset;
+	}
+	public long fingerprint() {
+		return fingerprint;
+	}
+	public long length() {
+		return length;
+	}
+	public long modified() {
+		return modified;
+	}
+
+	/**
+	 * Returns true if the file looks exactly the same as when this
+	 * state was taken, which is checked by size and time only
+	 */
+	public boolean isCurrent(String filename) {
+		File file = new File(filename);
+		return file.length() == length && file.lastModified() == modified;
+	}
+
+	// The byte after the last \n in the first length bytes, 0 if there is none
+	private static long LastLineEnd(FileChannel channel, long length) throws IOException {
+		ByteBuffer buf = ByteBuffer.allocate(1 << 12);
+		long end = length;
+		while (end > 0) {
+			long start = Math.max(0, end - buf.capacity());
+			buf.clear();
+			buf.limit((int) (end - start));
+			while (buf.hasRemaining()) {
+				if (channel.read(buf, start + buf.position()) < 0) break;
+			}
+			for (int i = buf.position() - 1; i >= 0; i--) {
+				if (buf.get(i) == '\n') return start + i + 1;
+			}
+			end = start;
+		}
+		return 0;
+	}
+
+	// Adds the bytes from to to - 1 to the CRC32, mapped a window at a time
+	private static void Update(CRC32 crc, FileChannel channel, long from, long to) throws IOException {
+		for (long start = from; start < to; start += WINDOW) {
+			long size = Math.min(WINDOW, to - start);
+			crc.update(channel.map(FileChannel.MapMode.READ_ONLY, start, size));
+		}
+	}
+}
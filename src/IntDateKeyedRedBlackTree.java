@@ -0,0 +1,686 @@
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * A red black tree specialized for int date keys and double values
+ * Used for the <date, info> trees so that a date (as an epoch day)
+ * and its reading are stored directly in the node instead of
+ * being boxed into a String and a Double
+ * Since the keys are epoch days (see DateKey) the tree is in chronological
+ * order and keys(DateKey.of(1990, 1, 1), DateKey.of(1999, 12, 31)) is a date range
+ *
+ * Every node also keeps the sum, minimum and maximum of the values in
+ * its subtree next to the size, so aggregate(lo, hi) gives the count,
+ * sum, mean, minimum and maximum of the readings between two dates in
+ * O(log n) by walking down the two edges of the range and using whole
+ * subtrees in between. Update() keeps the extra fields correct and is
+ * called everywhere the size is recomputed
+ *
+ * Based on RedBlackTree which was taken from
+ * https://algs4.cs.princeton.edu/code/edu/princeton/cs/algs4/RedBlackBST.java.html
+ *
+ * @author Bryce Lehnen
+ */
+public class IntDateKeyedRedBlackTree {
+
+	/**
+	 * Returned by get() when the key is not in the tree
+	 * Because of this NaN can not be stored as a value
+	 */
+	public static final double NO_VALUE = Double.NaN;
+
+	private static final boolean RED = true;
+	private static final boolean BLACK = false;
+	private Node root;
+
+	// Reused by the if absent methods as the stack of nodes on the
+	// way down, see RedBlackTree. 64 levels is enough for any int size
+	private static final int MAX_DEPTH = 64;
+	private Node[] path;
+	private boolean[] wentLeft;
+	// Counts the calls that change the tree, so computeIfAbsent() can
+	// tell if its mapping function changed it under the path
+	private int modCount;
+
+	private static class Node {
+		private int key;			// Key
+		private double val;			// Data
+		private Node left, right;	// Links to children
+		private boolean color;		// Color of parent link
+		private int size;			// Subtree count
+		private double sum;			// Subtree sum of val
+		private double min, max;	// Subtree smallest and largest val
+
+		// Creates a new node based on the inputs
+		public Node(int key, double val, boolean color, int size) {
+			this.key = key;
+			this.val = val;
+			this.color = color;
+			this.size = size;
+			this.sum = val;
+			this.min = val;
+			this.max = val;
+		}
+	}
+
+	/**
+	 * The count, sum, minimum and maximum of the values in a range
+	 * An empty range has a count of 0, a sum of 0 and NaN for the rest
+	 */
+	public static class Summary {
+		private int count;
+		private double sum;
+		private double min = Double.NaN;
+		private double max = Double.NaN;
+
+		public int count() {
+			return count;
+		}
+		public double sum() {
+			return sum;
+		}
+		public double mean() {
+			if (count == 0) return Double.NaN;
+			return sum / count;
+		}
+		public double min() {
+			return min;
+		}
+		public double max() {
+			return max;
+		}
+
+		// Adds a single value
+		private void Add(double val) {
+			AddAll(1, val, val, val);
+		}
+		// Adds a whole subtree
+		private void Add(Node x) {
+			if (x == null) return;
+			AddAll(x.size, x.sum, x.min, x.max);
+		}
+		private void AddAll(int n, double s, double lo, double hi) {
+			if (count == 0) {
+				min = lo;
+				max = hi;
+			}
+			else {
+				min = Math.min(min, lo);
+				max = Math.max(max, hi);
+			}
+			count += n;
+			sum += s;
+		}
+	}
+
+	/**
+	 * Creates a blank tree
+	 */
+	public IntDateKeyedRedBlackTree() {
+	}
+
+	/**
+	 * Builds a tree from keys that are already in ascending order in
+	 * linear time, see RedBlackTree.bulkLoad()
+	 *
+	 * @param keys The keys in ascending order with no repeats
+	 * @param vals The values, keys[i] goes with vals[i]
+	 * @return A balanced tree holding every key
+	 */
+	public static IntDateKeyedRedBlackTree bulkLoad(int[] keys, double[] vals) {
+		if (keys.length != vals.length) throw new IllegalArgumentException("bulkLoad() needs one value per key");
+		IntDateKeyedRedBlackTree tree = new IntDateKeyedRedBlackTree();
+		tree.BulkLoad(keys, vals, keys.length);
+		return tree;
+	}
+	// Replaces the contents of the tree with the first n pairs
+	void BulkLoad(int[] keys, double[] vals, int n) {
+		for (int i = 0; i < n; i++) {
+			if (i > 0 && keys[i - 1] >= keys[i]) throw new IllegalArgumentException("bulkLoad() keys are not in ascending order");
+			if (Double.isNaN(vals[i])) throw new IllegalArgumentException("bulkLoad() given a NaN value");
+		}
+		modCount++;
+		root = Build(keys, vals, 0, n, RedBlackTree.BlackHeight(n));
+	}
+	// Replaces the contents of the tree with the nodes of other,
+	// which should not be used after
+	void Replace(IntDateKeyedRedBlackTree other) {
+		modCount++;
+		root = other.root;
+	}
+	// Builds a black rooted subtree out of keys[lo] to keys[lo + n - 1]
+	// the same way as RedBlackTree.Build()
+	private Node Build(int[] keys, double[] vals, int lo, int n, int bh) {
+		if (n == 0) return null;
+
+		if (n - 1 <= 2 * RedBlackTree.MOST_KEYS[bh - 1]) {
+			int ln = (n - 1) / 2;
+			int mid = lo + ln;
+			Node x = new Node(keys[mid], vals[mid], BLACK, n);
+			x.left = Build(keys, vals, lo, ln, bh - 1);
+			x.right = Build(keys, vals, mid + 1, n - 1 - ln, bh - 1);
+			Update(x);
+			return x;
+		}
+
+		int rest = n - 2;
+		int an = rest / 3;
+		int bn = (rest - an) / 2;
+		int cn = rest - an - bn;
+		int ymid = lo + an;
+		int xmid = ymid + 1 + bn;
+		Node y = new Node(keys[ymid], vals[ymid], RED, an + bn + 1);
+		y.left = Build(keys, vals, lo, an, bh - 1);
+		y.right = Build(keys, vals, ymid + 1, bn, bh - 1);
+		Update(y);
+		Node x = new Node(keys[xmid], vals[xmid], BLACK, n);
+		x.left = y;
+		x.right = Build(keys, vals, xmid + 1, cn, bh - 1);
+		Update(x);
+		return x;
+	}
+
+	/**
+	 * Helper methods
+	 */
+	// True if x is red, false if x is black
+	private boolean IsRed(Node x) {
+		if (x == null) return false;
+		return x.color == RED;
+	}
+	// Number of nodes in a subtree rooted at x; 0 if x is null
+	private int Size(Node x) {
+		if (x == null) return 0;
+		return x.size;
+	}
+	// Recomputes the subtree fields of h from its value and children
+	private void Update(Node h) {
+		h.size = Size(h.left) + Size(h.right) + 1;
+		double sum = h.val, min = h.val, max = h.val;
+		if (h.left != null) {
+			sum += h.left.sum;
+			min = Math.min(min, h.left.min);
+			max = Math.max(max, h.left.max);
+		}
+		if (h.right != null) {
+			sum += h.right.sum;
+			min = Math.min(min, h.right.min);
+			max = Math.max(max, h.right.max);
+		}
+		h.sum = sum;
+		h.min = min;
+		h.max = max;
+	}
+	// Gives x the subtree fields of h, for a rotation that puts x where h was
+	private void CopyTotals(Node h, Node x) {
+		x.size = h.size;
+		x.sum = h.sum;
+		x.min = h.min;
+		x.max = h.max;
+	}
+	// Returns the size of the entire tree
+	public int size() {
+		return Size(root);
+	}
+	// Checks if the tree is empty
+	public boolean IsEmpty() {
+		return root == null;
+	}
+	// Removes every key
+	public void clear() {
+		modCount++;
+		root = null;
+	}
+
+	/**
+	 * Inserts the key/value pair
+	 * Will overwrite the value if the key already exists
+	 */
+	public void insert(int key, double val) {
+		if (Double.isNaN(val)) throw new IllegalArgumentException("second argument to insert() is NaN");
+		modCount++;
+		root = Insert(root, key, val);
+		root.color = BLACK;
+	}
+	private Node Insert(Node h, int key, double val) {
+		// Placed new node
+		if (h == null) {
+			return new Node(key, val, RED, 1);
+		}
+
+		int cmp = Integer.compare(key, h.key);
+		if (cmp < 0) {
+			h.left = Insert(h.left, key, val);
+		}
+		else if (cmp > 0) {
+			h.right = Insert(h.right, key, val);
+		}
+		else {
+			h.val = val;
+		}
+
+		return Balance(h);
+	}
+
+	/**
+	 * Helper functions to rotate the tree keeping
+	 * it in balance, see RedBlackTree
+	 */
+	private Node RotateLeft(Node h) {
+		Node x = h.right;
+		h.right = x.left;
+		x.left = h;
+		x.color = x.left.color;
+		x.left.color = RED;
+		CopyTotals(h, x);
+		Update(h);
+
+		return x;
+	}
+	private Node RotateRight(Node h) {
+		Node x = h.left;
+		h.left = x.right;
+		x.right = h;
+		x.color = x.right.color;
+		x.right.color = RED;
+		CopyTotals(h, x);
+		Update(h);
+
+		return x;
+	}
+	private void FlipColors(Node h) {
+		h.color = !h.color;
+		h.left.color = !h.left.color;
+		h.right.color = !h.right.color;
+	}
+
+	/**
+	 * Deletes the given key if it is in the tree
+	 */
+	public void delete(int key) {
+		if (!Contains(key)) return;
+		modCount++;
+
+		// If both children are black, set root to red
+		if (!IsRed(root.left) && !IsRed(root.right)) {
+			root.color = RED;
+		}
+
+		root = Delete(root, key);
+		if (!IsEmpty()) {
+			root.color = BLACK;
+		}
+	}
+	private Node Delete(Node h, int key) {
+		if (Integer.compare(key, h.key) < 0) {
+			if (!IsRed(h.left) && !IsRed(h.left.left)) {
+				h = MoveRedLeft(h);
+			}
+			h.left = Delete(h.left, key);
+		}
+		else {
+			if (IsRed(h.left)) {
+				h = RotateRight(h);
+			}
+			if (Integer.compare(key, h.key) == 0 && (h.right == null)) {
+				return null;
+			}
+			if (!IsRed(h.right) && !IsRed(h.right.left)) {
+				h = MoveRedRight(h);
+			}
+			if (Integer.compare(key, h.key) == 0) {
+				Node x = Min(h.right);
+				h.key = x.key;
+				h.val = x.val;
+				h.right = DeleteMin(h.right);
+			}
+			else {
+				h.right = Delete(h.right, key);
+			}
+		}
+		return Balance(h);
+	}
+
+	/**
+	 * Helper functions for the delete
+	 */
+	private Node MoveRedLeft(Node h) {
+		FlipColors(h);
+		if (IsRed(h.right.left)) {
+			h.right = RotateRight(h.right);
+			h = RotateLeft(h);
+			FlipColors(h);
+		}
+		return h;
+	}
+	private Node MoveRedRight(Node h) {
+		FlipColors(h);
+		if (IsRed(h.left.left)) {
+			h = RotateRight(h);
+			FlipColors(h);
+		}
+		return h;
+	}
+	private Node DeleteMin(Node h) {
+		if (h.left == null) {
+			return null;
+		}
+		if (!IsRed(h.left) && !IsRed(h.left.left)) {
+			h = MoveRedLeft(h);
+		}
+
+		h.left = DeleteMin(h.left);
+		return Balance(h);
+	}
+
+	/**
+	 * Balances the tree with RotateLeft, RotateRight, and FlipColors
+	 */
+	private Node Balance(Node h) {
+		if (IsRed(h.right) && !IsRed(h.left)) {
+			h = RotateLeft(h);
+		}
+		if (IsRed(h.left) && IsRed(h.left.left)) {
+			h = RotateRight(h);
+		}
+		if (IsRed(h.left) && IsRed(h.right)) {
+			FlipColors(h);
+		}
+
+		Update(h);
+		return h;
+	}
+
+	/**
+	 * Returns the value for the given key or
+	 * NO_VALUE if the key is not in the tree
+	 */
+	public double get(int key) {
+		Node x = Find(key);
+		if (x == null) return NO_VALUE;
+		return x.val;
+	}
+	private Node Find(int key) {
+		Node x = root;
+		while (x != null) {
+			int cmp = Integer.compare(key, x.key);
+			if (cmp < 0) {
+				x = x.left;
+			}
+			else if (cmp > 0) {
+				x = x.right;
+			}
+			else {
+				return x;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns true if the key is in the tree
+	 */
+	public boolean Contains(int key) {
+		return Find(key) != null;
+	}
+
+	/**
+	 * Returns the value for the given key, or the
+	 * given default if the key is not in the tree
+	 */
+	public double getOrDefault(int key, double defaultValue) {
+		Node x = Find(key);
+		if (x == null) return defaultValue;
+		return x.val;
+	}
+
+	/**
+	 * Inserts the key/value pair only if the key is not already
+	 * in the tree. Unlike Contains() followed by insert() this
+	 * only walks down the tree once
+	 *
+	 * @return True if the key was not there and has been inserted
+	 */
+	public boolean addIfAbsent(int key, double val) {
+		if (Double.isNaN(val)) throw new IllegalArgumentException("second argument to addIfAbsent() is NaN");
+		int depth = Descend(key);
+		if (depth < 0) {
+			Release(~depth + 1);
+			return false;
+		}
+		Add(depth, key, val);
+		return true;
+	}
+
+	/**
+	 * The same as addIfAbsent() but returns the value
+	 *
+	 * @return The value already stored for the key, or NO_VALUE if
+	 *         the key was not there and has been inserted
+	 */
+	public double putIfAbsent(int key, double val) {
+		if (Double.isNaN(val)) throw new IllegalArgumentException("second argument to putIfAbsent() is NaN");
+		int depth = Descend(key);
+		if (depth < 0) return Found(~depth);
+		Add(depth, key, val);
+		return NO_VALUE;
+	}
+
+	/**
+	 * Returns the value for the given key. If the key is not in the
+	 * tree the value is made by the given function and inserted
+	 * in the same walk down the tree. The function must not change
+	 * the tree or return NaN
+	 *
+	 * @return The value that is now stored for the key
+	 */
+	public double computeIfAbsent(int key, IntToDoubleFunction mapping) {
+		if (mapping == null) throw new IllegalArgumentException("second argument to computeIfAbsent() is null");
+		int depth = Descend(key);
+		if (depth < 0) return Found(~depth);
+
+		// The path would no longer match the tree if the function changed it
+		int expected = modCount;
+		double val = mapping.applyAsDouble(key);
+		if (modCount != expected) {
+			Release(depth);
+			throw new ConcurrentModificationException("computeIfAbsent() function changed the tree");
+		}
+		if (Double.isNaN(val)) {
+			Release(depth);
+			throw new IllegalArgumentException("computeIfAbsent() function returned NaN");
+		}
+		Add(depth, key, val);
+		return val;
+	}
+
+	/**
+	 * Walks down to the key pushing every node passed onto the path
+	 * Returns how many nodes were pushed if the key is missing, or
+	 * ~i if it is in the tree where path[i] is the node holding it
+	 */
+	private int Descend(int key) {
+		if (path == null) {
+			path = new Node[MAX_DEPTH];
+			wentLeft = new boolean[MAX_DEPTH];
+		}
+		modCount++;
+		int depth = 0;
+		Node x = root;
+		while (x != null) {
+			int cmp = Integer.compare(key, x.key);
+			path[depth] = x;
+			if (cmp == 0) return ~depth;
+			wentLeft[depth++] = cmp < 0;
+			x = cmp < 0 ? x.left : x.right;
+		}
+		return depth;
+	}
+	// Returns the value of the node Descend() found at path[i]
+	private double Found(int i) {
+		double val = path[i].val;
+		Release(i + 1);
+		return val;
+	}
+	// Clears the first depth nodes of a path that will not be
+	// unwound, so the scratch array does not keep them alive
+	private void Release(int depth) {
+		Arrays.fill(path, 0, depth, null);
+	}
+	// Adds a new node below the end of the path and balances every
+	// node on the way back up to the root, as Insert() does
+	private void Add(int depth, int key, double val) {
+		Node child = new Node(key, val, RED, 1);
+		for (int i = depth - 1; i >= 0; i--) {
+			Node h = path[i];
+			if (wentLeft[i]) {
+				h.left = child;
+			}
+			else {
+				h.right = child;
+			}
+			path[i] = null;
+			child = Balance(h);
+		}
+		root = child;
+		root.color = BLACK;
+	}
+
+	/**
+	 * Returns the count, sum, minimum and maximum of every value in the tree
+	 */
+	public Summary aggregate() {
+		Summary summary = new Summary();
+		summary.Add(root);
+		return summary;
+	}
+
+	/**
+	 * Returns the count, sum, minimum and maximum of the values
+	 * whose keys are between lo and hi (inclusive)
+	 *
+	 * Finds the node where the paths to lo and hi split, then walks
+	 * down towards lo adding every right subtree that is passed and
+	 * down towards hi adding every left subtree that is passed
+	 */
+	public Summary aggregate(int lo, int hi) {
+		Summary summary = new Summary();
+		if (lo > hi) return summary;
+
+		// Finds the highest node inside the range
+		Node x = root;
+		while (x != null && (x.key < lo || x.key > hi)) {
+			x = hi < x.key ? x.left : x.right;
+		}
+		if (x == null) return summary;
+		summary.Add(x.val);
+
+		// Everything in x.left is <= hi, only lo has to be checked
+		Node y = x.left;
+		while (y != null) {
+			if (lo <= y.key) {
+				summary.Add(y.val);
+				summary.Add(y.right);
+				y = y.left;
+			}
+			else {
+				y = y.right;
+			}
+		}
+
+		// Everything in x.right is >= lo, only hi has to be checked
+		y = x.right;
+		while (y != null) {
+			if (y.key <= hi) {
+				summary.Add(y.val);
+				summary.Add(y.left);
+				y = y.right;
+			}
+			else {
+				y = y.left;
+			}
+		}
+		return summary;
+	}
+
+	/**
+	 * Returns the minimum key
+	 */
+	public int min() {
+		if (IsEmpty()) throw new NoSuchElementException("calls min() with empty symbol table");
+		return Min(root).key;
+	}
+	private Node Min(Node x) {
+		while (x.left != null) {
+			x = x.left;
+		}
+		return x;
+	}
+
+	/**
+	 * Returns the maximum key
+	 */
+	public int max() {
+		if (IsEmpty()) throw new NoSuchElementException("calls max() with empty symbol table");
+		Node x = root;
+		while (x.right != null) {
+			x = x.right;
+		}
+		return x.key;
+	}
+
+	/**
+	 * Returns all the keys in ascending order
+	 */
+	public int[] keys() {
+		if (IsEmpty()) return new int[0];
+		return keys(min(), max());
+	}
+
+	/**
+	 * Returns all the keys between lo and hi (inclusive)
+	 * in ascending order
+	 */
+	public int[] keys(int lo, int hi) {
+		int[] out = new int[size()];
+		int n = Keys(root, out, 0, lo, hi);
+		if (n == out.length) return out;
+		int[] trimmed = new int[n];
+		System.arraycopy(out, 0, trimmed, 0, n);
+		return trimmed;
+	}
+	/**
+	 * Copies every key and its value into the two arrays in
+	 * ascending order, both need room for size() entries
+	 */
+	public void copyTo(int[] keys, double[] vals) {
+		CopyTo(root, keys, vals, 0);
+	}
+	private int CopyTo(Node x, int[] keys, double[] vals, int n) {
+		if (x == null) return n;
+		n = CopyTo(x.left, keys, vals, n);
+		keys[n] = x.key;
+		vals[n] = x.val;
+		return CopyTo(x.right, keys, vals, n + 1);
+	}
+
+	// Fills out starting at n and returns the next free index
+	private int Keys(Node x, int[] out, int n, int lo, int hi) {
+		if (x == null) return n;
+		int cmplo = Integer.compare(lo, x.key);
+		int cmphi = Integer.compare(hi, x.key);
+
+		if (cmplo < 0) {
+			n = Keys(x.left, out, n, lo, hi);
+		}
+		if (cmplo <= 0 && cmphi >= 0) {
+			out[n++] = x.key;
+		}
+		if (cmphi > 0) {
+			n = Keys(x.right, out, n, lo, hi);
+		}
+		return n;
+	}
+}
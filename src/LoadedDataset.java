@@ -0,0 +1,108 @@
+import java.io.IOException;
+
+/**
+ * The two trees of one Dataset and the loop that fills them
+ *
+ * Every dataset is read with the same handler, which converts the
+ * reading with the dataset's transform and adds it to both trees
+ * the first time its date is seen. Having one handler for all of
+ * them gives the JIT a single hot loop to compile instead of a
+ * separate one per data class
+ *
+ * With indexEntities() the rows of every other entity in the file are
+ * kept too, in the same pass that fills the dataset's own two trees
+ *
+ * @author Bryce Lehnen
+ */
+public class LoadedDataset {
+
+	private final Dataset dataset;
+	private final IntDateKeyedRedBlackTree byDate = new IntDateKeyedRedBlackTree();
+	// Keeps every date for a repeated reading
+	private final DoubleKeyedRedBlackTree byValue = new DoubleKeyedRedBlackTree(true);
+	private final CsvReader.RowHandler handler;
+	// Every entity of the file, or null if only the dataset's entity is kept
+	private EntityIndex index;
+
+	/**
+	 * Creates empty trees for the dataset
+	 */
+	public LoadedDataset(Dataset dataset) {
+		this.dataset = dataset;
+		handler = (day, value) -> {
+			double info = dataset.transform(value);
+			// addIfAbsent() only adds the date if it was not there yet
+			// as there is a possiblity of repeats
+			if (byDate.addIfAbsent(day, info)) {
+				byValue.insert(info, day);
+			}
+		};
+	}
+
+	public Dataset dataset() {
+		return dataset;
+	}
+	// The <date, info> tree
+	public IntDateKeyedRedBlackTree byDate() {
+		return byDate;
+	}
+	// The <info, date> tree
+	public DoubleKeyedRedBlackTree byValue() {
+		return byValue;
+	}
+	// Places each row into both trees, for the readers in CsvReader and ParallelLoader
+	public CsvReader.RowHandler handler() {
+		return handler;
+	}
+
+	/**
+	 * Makes read() keep the rows of every entity in an EntityIndex
+	 * The dataset's own entity goes into byDate() and byValue() as before
+	 *
+	 * @param top Tracks this many lowest and highest readings of every entity
+	 * @return The index, also returned by index()
+	 */
+	public EntityIndex indexEntities(int top) {
+		index = new EntityIndex(dataset, top);
+		index.attach(dataset.entity(), byDate, byValue);
+		return index;
+	}
+	// Returns the index made by indexEntities(), or null if there is none
+	public EntityIndex index() {
+		return index;
+	}
+
+	/**
+	 * Reads the rows of the dataset's entity from the .csv file,
+	 * or every row if the entities are indexed
+	 *
+	 * @param mapped True to memory map the file instead of streaming it
+	 * @param from Where to start in the file, 0 for the whole file
+	 * @param to Where to stop, Long.MAX_VALUE for the rest of the file
+	 * @param chunks How many pieces to parse the file in at the same time
+	 */
+	public void read(boolean mapped, long from, long to, int chunks) throws IOException {
+		// Every row is needed so the entity filter and the chunks are not used
+		if (index != null) {
+			index.read(mapped, from, to);
+		}
+		else if (chunks > 1 && from == 0) {
+			ParallelLoader.readSeries(dataset.filename(), mapped, to, dataset.entity(),
+					dataset.dateColumn(), dataset.valueColumn(), chunks, handler);
+		}
+		else {
+			CsvReader.readSeries(dataset.filename(), mapped, from, to, dataset.entity(),
+					dataset.dateColumn(), dataset.valueColumn(), handler);
+		}
+	}
+
+	// Empties both trees, and the trees of every entity if they are indexed
+	public void clear() {
+		if (index != null) {
+			index.clear();
+			return;
+		}
+		byDate.clear();
+		byValue.clear();
+	}
+}
@@ -0,0 +1,39 @@
+
+/**
+ * The operations shared by the red black tree storage engines
+ * so that code can pick an engine without caring how the nodes
+ * are stored
+ *
+ * RedBlackTree keeps every node as its own object
+ * ArrayRedBlackTree keeps the nodes in parallel arrays
+ * ConcurrentRedBlackTree can be read while another thread writes to it
+ *
+ * @author Bryce Lehnen
+ */
+public interface OrderedSymbolTable<Key extends Comparable<Key>, Value> {
+
+	/**
+	 * Creates an empty table
+	 *
+	 * @param arrayBacked True for ArrayRedBlackTree, false for RedBlackTree
+	 * @return The new table
+	 */
+	static <Key extends Comparable<Key>, Value> OrderedSymbolTable<Key, Value> create(boolean arrayBacked) {
+		if (arrayBacked) {
+			return new ArrayRedBlackTree<Key, Value>();
+		}
+		return new RedBlackTree<Key, Value>();
+	}
+
+	int size();
+	boolean IsEmpty();
+	void insert(Key key, Value val);
+	void delete(Key key);
+	void deleteMin();
+	Value get(Key key);
+	boolean Contains(Key key);
+	Key min();
+	Key max();
+	Iterable<Key> keys();
+	Iterable<Key> keys(Key lo, Key hi);
+}
@@ -0,0 +1,154 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Loads the datasets on several threads
+ *
+ * runAll() gives each dataset its own thread and waits for all of
+ * them, which is safe as long as each one fills its own trees.
+ * readSeries() splits one large file into byte ranges that are
+ * parsed at the same time. The trees are not thread safe so the
+ * parsed rows are handed to the handler afterwards on the calling
+ * thread, in file order, which keeps the results the same as
+ * reading the file from start to end
+ *
+ * @author Bryce Lehnen
+ */
+public class ParallelLoader {
+
+	// Ranges smaller than this are not worth a thread of their own
+	private static final long MIN_CHUNK = 1 << 20;
+
+	/**
+	 * Runs every task on its own thread and returns once they
+	 * have all finished. The first exception thrown by a task
+	 * is thrown again here
+	 *
+	 * @param tasks The loads to run
+	 */
+	public static void runAll(Runnable... tasks) {
+		ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, tasks.length));
+		try {
+			List<Future<?>> running = new ArrayList<Future<?>>();
+			for (Runnable task : tasks) {
+				running.add(pool.submit(task));
+			}
+			for (Future<?> task : running) {
+				Join(task);
+			}
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Works like CsvReader.readSeries() but parses the file
+	 * in up to the given number of chunks at the same time
+	 *
+	 * @param filename The .csv file
+	 * @param mapped True to memory map the file instead of streaming it
+	 * @param to Where to stop, Long.MAX_VALUE for the rest of the file
+	 * @param entity Rows with any other entity are skipped
+	 * @param dateCol Column holding the date
+	 * @param valueCol Column holding the reading
+	 * @param chunks Most byte ranges to parse at once
+	 * @param handler Gets the epoch day and the reading of each row, in file order
+	 */
+	public static void readSeries(String filename, boolean mapped, long to, String entity, int dateCol, int valueCol,
+			int chunks, CsvReader.RowHandler handler) throws IOException {
+		long length = Math.min(new File(filename).length(), to);
+		chunks = (int) Math.max(1, Math.min(chunks, length / MIN_CHUNK));
+		if (chunks == 1) {
+			CsvReader.readSeries(filename, mapped, 0, to, entity, dateCol, valueCol, handler);
+			return;
+		}
+
+		byte[] match = entity.getBytes(StandardCharsets.UTF_8);
+		ExecutorService pool = Executors.newFixedThreadPool(chunks);
+		try {
+			List<Future<Rows>> parsed = new ArrayList<Future<Rows>>();
+			for (int i = 0; i < chunks; i++) {
+				long start = length * i / chunks;
+				long end = length * (i + 1) / chunks;
+				parsed.add(pool.submit(() -> {
+					Rows rows = new Rows();
+					try (CsvReader reader = new CsvReader(filename, mapped, start, end)) {
+						while (reader.next(match)) {
+							rows.add(reader.dateField(dateCol), reader.doubleField(valueCol));
+						}
+					}
+					catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+					return rows;
+				}));
+			}
+
+			// Merges the chunks in order
+			for (Future<Rows> chunk : parsed) {
+				Rows rows;
+				try {
+					rows = Join(chunk);
+				}
+				catch (UncheckedIOException e) {
+					throw e.getCause();
+				}
+				for (int i = 0; i < rows.n; i++) {
+					handler.row(rows.days[i], rows.values[i]);
+				}
+			}
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Waits for the task and returns its result, throwing
+	 * whatever the task threw
+	 */
+	private static <T> T Join(Future<T> task) {
+		try {
+			return task.get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("interrupted while loading", e);
+		}
+		catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+			if (cause instanceof Error) throw (Error) cause;
+			throw new IllegalStateException(cause);
+		}
+	}
+
+	/**
+	 * The rows parsed from one chunk, kept as primitives
+	 */
+	private static class Rows {
+		private int[] days = new int[1024];
+		private double[] values = new double[1024];
+		private int n;
+
+		private void add(int day, double value) {
+			if (n == days.length) {
+				days = Arrays.copyOf(days, n * 2);
+				values = Arrays.copyOf(values, n * 2);
+			}
+			days[n] = day;
+			values[n] = value;
+			n++;
+		}
+	}
+}
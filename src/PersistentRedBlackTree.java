@@ -0,0 +1,370 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A red black tree that never changes once it is built
+ *
+ * insert() and delete() leave this tree alone and return a new one.
+ * Only the nodes on the path that was walked (O(log n) of them) are
+ * copied, every other subtree is shared with the old tree, so keeping
+ * every version of a dataset as it grows costs O(log n) nodes per
+ * update instead of a full copy. Any version can be read by any
+ * number of threads at once without locking
+ *
+ * Based on RedBlackTree which was taken from
+ * https://algs4.cs.princeton.edu/code/edu/princeton/cs/algs4/RedBlackBST.java.html
+ *
+ * @author Bryce Lehnen
+ */
+public final class PersistentRedBlackTree<Key extends Comparable<Key>, Value> {
+
+	private static final boolean RED = true;
+	private static final boolean BLACK = false;
+	private static final int MAX_DEPTH = 64;
+
+	private final Node<Key, Value> root;
+
+	/**
+	 * A node that never changes, every field is final so a reader
+	 * that gets the root sees the whole tree below it
+	 */
+	private static final class Node<Key, Value> {
+		private final Key key;					// Key
+		private final Value val;				// Data
+		private final Node<Key, Value> left, right;	// Links to children
+		private final boolean color;			// Color of parent link
+		private final int size;					// Subtree count
+
+		// Creates a new node based on the inputs, the size comes from the children
+		private Node(Key key, Value val, Node<Key, Value> left, Node<Key, Value> right, boolean color) {
+			this.key = key;
+			this.val = val;
+			this.left = left;
+			this.right = right;
+			this.color = color;
+			this.size = 1 + Size(left) + Size(right);
+		}
+
+		// A copy of this node with new children and color
+		private Node<Key, Value> with(Node<Key, Value> left, Node<Key, Value> right, boolean color) {
+			if (left == this.left && right == this.right && color == this.color) return this;
+			return new Node<Key, Value>(key, val, left, right, color);
+		}
+	}
+
+	/**
+	 * Creates a blank tree
+	 */
+	public PersistentRedBlackTree() {
+		this(null);
+	}
+	private PersistentRedBlackTree(Node<Key, Value> root) {
+		this.root = root;
+	}
+	// The tree for a new root, the same tree if nothing changed
+	private PersistentRedBlackTree<Key, Value> Version(Node<Key, Value> h) {
+		if (h == root) return this;
+		return new PersistentRedBlackTree<Key, Value>(h);
+	}
+
+	/**
+	 * Helper methods
+	 */
+	// True if x is red, false if x is black
+	private static boolean IsRed(Node<?, ?> x) {
+		if (x == null) return false;
+		return x.color == RED;
+	}
+	// Number of nodes in a subtree rooted at x; 0 if x is null
+	private static int Size(Node<?, ?> x) {
+		if (x == null) return 0;
+		return x.size;
+	}
+	// Returns the size of the entire tree
+	public int size() {
+		return Size(root);
+	}
+	// Checks if the tree is empty
+	public boolean IsEmpty() {
+		return root == null;
+	}
+	// The root with a black link, copied only if it was red
+	private Node<Key, Value> Black(Node<Key, Value> h) {
+		if (h == null) return null;
+		return h.with(h.left, h.right, BLACK);
+	}
+
+	/**
+	 * Returns a tree with the key/value pair added, this tree is not changed
+	 * Will overwrite the value if the key already exists
+	 */
+	public PersistentRedBlackTree<Key, Value> insert(Key key, Value val) {
+		if (key == null) throw new IllegalArgumentException("first argument to put() is null");
+		if (val == null) {
+			return delete(key);
+		}
+
+		return Version(Black(Insert(root, key, val)));
+	}
+	private Node<Key, Value> Insert(Node<Key, Value> h, Key key, Value val) {
+		// Placed new node
+		if (h == null) {
+			return new Node<Key, Value>(key, val, null, null, RED);
+		}
+
+		int cmp = key.compareTo(h.key);
+		if (cmp < 0) {
+			h = h.with(Insert(h.left, key, val), h.right, h.color);
+		}
+		else if (cmp > 0) {
+			h = h.with(h.left, Insert(h.right, key, val), h.color);
+		}
+		else {
+			h = new Node<Key, Value>(key, val, h.left, h.right, h.color);
+		}
+
+		return Balance(h);
+	}
+
+	/**
+	 * The rotations and color flip from RedBlackTree, but
+	 * building new nodes instead of changing the old ones
+	 */
+	private Node<Key, Value> RotateLeft(Node<Key, Value> h) {
+		Node<Key, Value> x = h.right;
+		Node<Key, Value> down = h.with(h.left, x.left, RED);
+		return x.with(down, x.right, h.color);
+	}
+	private Node<Key, Value> RotateRight(Node<Key, Value> h) {
+		Node<Key, Value> x = h.left;
+		Node<Key, Value> down = h.with(x.right, h.right, RED);
+		return x.with(x.left, down, h.color);
+	}
+	private Node<Key, Value> FlipColors(Node<Key, Value> h) {
+		Node<Key, Value> left = h.left.with(h.left.left, h.left.right, !h.left.color);
+		Node<Key, Value> right = h.right.with(h.right.left, h.right.right, !h.right.color);
+		return h.with(left, right, !h.color);
+	}
+
+	/**
+	 * Returns a tree without the given key, this tree is not changed
+	 * Returns this tree if the key is not in it
+	 */
+	public PersistentRedBlackTree<Key, Value> delete(Key key) {
+		if (key == null) throw new IllegalArgumentException("argument to delete() is null");
+		if (Get(root, key) == null) return this;
+
+		// If both children are black, set root to red
+		Node<Key, Value> h = root;
+		if (!IsRed(h.left) && !IsRed(h.right)) {
+			h = h.with(h.left, h.right, RED);
+		}
+		return Version(Black(Delete(h, key)));
+	}
+	private Node<Key, Value> Delete(Node<Key, Value> h, Key key) {
+		if (key.compareTo(h.key) < 0) {
+			if (!IsRed(h.left) && !IsRed(h.left.left)) {
+				h = MoveRedLeft(h);
+			}
+			h = h.with(Delete(h.left, key), h.right, h.color);
+		}
+		else {
+			if (IsRed(h.left)) {
+				h = RotateRight(h);
+			}
+			if (key.compareTo(h.key) == 0 && (h.right == null)) {
+				return null;
+			}
+			if (!IsRed(h.right) && !IsRed(h.right.left)) {
+				h = MoveRedRight(h);
+			}
+			if (key.compareTo(h.key) == 0) {
+				// Replaces h with the smallest node to its right
+				Node<Key, Value> x = Min(h.right);
+				h = new Node<Key, Value>(x.key, x.val, h.left, DeleteMin(h.right), h.color);
+			}
+			else {
+				h = h.with(h.left, Delete(h.right, key), h.color);
+			}
+		}
+		return Balance(h);
+	}
+
+	/**
+	 * Returns a tree without the smallest key, this tree is not changed
+	 */
+	public PersistentRedBlackTree<Key, Value> deleteMin() {
+		if (IsEmpty()) throw new NoSuchElementException("BST underflow");
+
+		Node<Key, Value> h = root;
+		if (!IsRed(h.left) && !IsRed(h.right)) {
+			h = h.with(h.left, h.right, RED);
+		}
+		return Version(Black(DeleteMin(h)));
+	}
+	private Node<Key, Value> DeleteMin(Node<Key, Value> h) {
+		if (h.left == null) {
+			return null;
+		}
+		if (!IsRed(h.left) && !IsRed(h.left.left)) {
+			h = MoveRedLeft(h);
+		}
+		h = h.with(DeleteMin(h.left), h.right, h.color);
+		return Balance(h);
+	}
+
+	/**
+	 * Helper functions for the delete
+	 */
+	private Node<Key, Value> MoveRedLeft(Node<Key, Value> h) {
+		h = FlipColors(h);
+		if (IsRed(h.right.left)) {
+			h = h.with(h.left, RotateRight(h.right), h.color);
+			h = RotateLeft(h);
+			h = FlipColors(h);
+		}
+		return h;
+	}
+	private Node<Key, Value> MoveRedRight(Node<Key, Value> h) {
+		h = FlipColors(h);
+		if (IsRed(h.left.left)) {
+			h = RotateRight(h);
+			h = FlipColors(h);
+		}
+		return h;
+	}
+
+	/**
+	 * Balances the tree with RotateLeft, RotateRight, and FlipColors
+	 */
+	private Node<Key, Value> Balance(Node<Key, Value> h) {
+		if (IsRed(h.right) && !IsRed(h.left)) {
+			h = RotateLeft(h);
+		}
+		if (IsRed(h.left) && IsRed(h.left.left)) {
+			h = RotateRight(h);
+		}
+		if (IsRed(h.left) && IsRed(h.right)) {
+			h = FlipColors(h);
+		}
+		return h;
+	}
+
+	/**
+	 * Returns the value for the given key or null if
+	 * the key is not in the tree
+	 */
+	public Value get(Key key) {
+		if (key == null) throw new IllegalArgumentException("argument to get() is null");
+		return Get(root, key);
+	}
+	private Value Get(Node<Key, Value> x, Key key) {
+		while (x != null) {
+			int cmp = key.compareTo(x.key);
+			if (cmp < 0) {
+				x = x.left;
+			}
+			else if (cmp > 0) {
+				x = x.right;
+			}
+			else {
+				return x.val;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns true if the key is in the tree
+	 */
+	public boolean Contains(Key key) {
+		return get(key) != null;
+	}
+
+	/**
+	 * Returns the minimum key
+	 */
+	public Key min() {
+		Node<Key, Value> x = root;
+		if (x == null) throw new NoSuchElementException("calls min() with empty symbol table");
+		return Min(x).key;
+	}
+	private Node<Key, Value> Min(Node<Key, Value> x) {
+		while (x.left != null) {
+			x = x.left;
+		}
+		return x;
+	}
+
+	/**
+	 * Returns the maximum key
+	 */
+	public Key max() {
+		Node<Key, Value> x = root;
+		if (x == null) throw new NoSuchElementException("calls max() with empty symbol table");
+		while (x.right != null) {
+			x = x.right;
+		}
+		return x.key;
+	}
+
+	/**
+	 * Returns all the keys in the tree
+	 */
+	public Iterable<Key> keys() {
+		return () -> new KeyIterator<Key, Value>(root, null, null);
+	}
+
+	/**
+	 * Returns the keys between lo and hi (inclusive)
+	 */
+	public Iterable<Key> keys(Key lo, Key hi) {
+		if (lo == null) throw new IllegalArgumentException("first argument to keys() is null");
+		if (hi == null) throw new IllegalArgumentException("second argument to keys() is null");
+		return () -> new KeyIterator<Key, Value>(root, lo, hi);
+	}
+
+	/**
+	 * Walks the tree in order with an explicit stack,
+	 * starting at lo (or the minimum when lo is null) and stopping at
+	 * the first key past hi (or at the end when hi is null)
+	 */
+	private static final class KeyIterator<Key extends Comparable<Key>, Value> implements Iterator<Key> {
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		private final Node<Key, Value>[] stack = new Node[MAX_DEPTH];
+		private int depth;
+		private final Key hi;
+
+		// Starts at the first key >= lo
+		private KeyIterator(Node<Key, Value> x, Key lo, Key hi) {
+			this.hi = hi;
+			while (x != null) {
+				int cmp = lo == null ? -1 : lo.compareTo(x.key);
+				if (cmp <= 0) {
+					stack[depth++] = x;
+					if (cmp == 0) break;
+					x = x.left;
+				}
+				else {
+					x = x.right;
+				}
+			}
+		}
+
+		public boolean hasNext() {
+			return depth > 0 && (hi == null || hi.compareTo(stack[depth - 1].key) >= 0);
+		}
+
+		public Key next() {
+			if (!hasNext()) throw new NoSuchElementException();
+			Node<Key, Value> next = stack[--depth];
+			stack[depth] = null;
+			Node<Key, Value> x = next.right;
+			while (x != null) {
+				stack[depth++] = x;
+				x = x.left;
+			}
+			return next.key;
+		}
+	}
+}
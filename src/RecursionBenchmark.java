@@ -0,0 +1,299 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the iterative insert and delete of RedBlackTree with
+ * the recursive versions it used before
+ *
+ * Both fill a tree with the same shuffled keys, delete half of them
+ * and then list every key that is left. The recursive versions are
+ * kept here in RecursiveTree so RedBlackTree only has the ones it uses
+ *
+ * Usage: java -Xmx8g RecursionBenchmark [number of keys]...
+ * 10^8 keys needs a large heap so it is only run when asked for
+ *
+ * @author Bryce Lehnen
+ */
+public class RecursionBenchmark {
+
+	/**
+	 * Runs both versions a few times at every size and prints
+	 * the results of the last run so the JIT has warmed up
+	 *
+	 * @param args Optional numbers of keys, 1000000 and 10000000 by default
+	 */
+	public static void main(String[] args) {
+		int[] sizes = {1000000, 10000000};
+		if (args.length > 0) {
+			sizes = new int[args.length];
+			for (int i = 0; i < args.length; i++) {
+				sizes[i] = Integer.parseInt(args[i]);
+			}
+		}
+
+		for (int n : sizes) {
+			Integer[] keys = Shuffled(n);
+			for (int run = 0; run < 3; run++) {
+				boolean last = run == 2;
+				Measure("recursive", true, keys, last);
+				Measure("iterative", false, keys, last);
+			}
+		}
+	}
+
+	/**
+	 * Inserts every key, deletes every other one, lists the
+	 * rest and prints the time per operation of each step
+	 */
+	private static void Measure(String name, boolean recursive, Integer[] keys, boolean print) {
+		// Starts each run with the last run's tree collected
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		RedBlackTree<Integer, Integer> tree = new RedBlackTree<Integer, Integer>();
+		RecursiveTree<Integer, Integer> old = new RecursiveTree<Integer, Integer>();
+
+		long start = System.nanoTime();
+		for (int i = 0; i < keys.length; i++) {
+			if (recursive) {
+				old.insert(keys[i], keys[i]);
+			}
+			else {
+				tree.insert(keys[i], keys[i]);
+			}
+		}
+		long inserted = System.nanoTime();
+		for (int i = 0; i < keys.length; i += 2) {
+			if (recursive) {
+				old.delete(keys[i]);
+			}
+			else {
+				tree.delete(keys[i]);
+			}
+		}
+		long deleted = System.nanoTime();
+		long listed = 0;
+		for (Integer key : recursive ? old.keys() : tree.keys()) {
+			listed += key;
+		}
+		long traversed = System.nanoTime();
+		int size = recursive ? old.size() : tree.size();
+
+		if (print) {
+			System.out.printf("n=%d %s: insert %7.1f ns/op, delete %7.1f ns/op, keys %6.1f ns/key (%d)%n",
+					keys.length, name,
+					(double) (inserted - start) / keys.length,
+					(double) (deleted - inserted) / ((keys.length + 1) / 2),
+					(double) (traversed - deleted) / Math.max(1, size), listed);
+		}
+	}
+
+	/**
+	 * The recursive insert and delete RedBlackTree used before it was
+	 * made iterative, the same as the algs4 RedBlackBST they came from
+	 *
+	 * Taken from https://algs4.cs.princeton.edu/code/edu/princeton/cs/algs4/RedBlackBST.java.html
+	 */
+	private static class RecursiveTree<Key extends Comparable<Key>, Value> {
+		private static final boolean RED = true;
+		private static final boolean BLACK = false;
+		private Node root;
+
+		private class Node {
+			private Key key;			// Key
+			private Value val;			// Data
+			private Node left, right;	// Links to children
+			private boolean color;		// Color of parent link
+			private int size;			// Subtree count
+
+			private Node(Key key, Value val, boolean color, int size) {
+				this.key = key;
+				this.val = val;
+				this.color = color;
+				this.size = size;
+			}
+		}
+
+		private boolean IsRed(Node x) {
+			if (x == null) return false;
+			return x.color == RED;
+		}
+		private int Size(Node x) {
+			if (x == null) return 0;
+			return x.size;
+		}
+		private int size() {
+			return Size(root);
+		}
+
+		private void insert(Key key, Value val) {
+			root = Insert(root, key, val);
+			root.color = BLACK;
+		}
+		private Node Insert(Node h, Key key, Value val) {
+			if (h == null) {
+				return new Node(key, val, RED, 1);
+			}
+
+			int cmp = key.compareTo(h.key);
+			if (cmp < 0) {
+				h.left = Insert(h.left, key, val);
+			}
+			else if (cmp > 0) {
+				h.right = Insert(h.right, key, val);
+			}
+			else {
+				h.val = val;
+			}
+			return Balance(h);
+		}
+
+		private void delete(Key key) {
+			if (!Contains(root, key)) return;
+			if (!IsRed(root.left) && !IsRed(root.right)) {
+				root.color = RED;
+			}
+			root = Delete(root, key);
+			if (root != null) {
+				root.color = BLACK;
+			}
+		}
+		private Node Delete(Node h, Key key) {
+			if (key.compareTo(h.key) < 0) {
+				if (!IsRed(h.left) && !IsRed(h.left.left)) {
+					h = MoveRedLeft(h);
+				}
+				h.left = Delete(h.left, key);
+			}
+			else {
+				if (IsRed(h.left)) {
+					h = RotateRight(h);
+				}
+				if (key.compareTo(h.key) == 0 && (h.right == null)) {
+					return null;
+				}
+				if (!IsRed(h.right) && !IsRed(h.right.left)) {
+					h = MoveRedRight(h);
+				}
+				if (key.compareTo(h.key) == 0) {
+					Node x = h.right;
+					while (x.left != null) {
+						x = x.left;
+					}
+					h.key = x.key;
+					h.val = x.val;
+					h.right = DeleteMin(h.right);
+				}
+				else {
+					h.right = Delete(h.right, key);
+				}
+			}
+			return Balance(h);
+		}
+		private Node DeleteMin(Node h) {
+			if (h.left == null) {
+				return null;
+			}
+			if (!IsRed(h.left) && !IsRed(h.left.left)) {
+				h = MoveRedLeft(h);
+			}
+			h.left = DeleteMin(h.left);
+			return Balance(h);
+		}
+
+		private boolean Contains(Node x, Key key) {
+			while (x != null) {
+				int cmp = key.compareTo(x.key);
+				if (cmp == 0) return true;
+				x = cmp < 0 ? x.left : x.right;
+			}
+			return false;
+		}
+
+		// Lists the keys with a recursive in order walk into a list
+		private List<Key> keys() {
+			List<Key> out = new ArrayList<Key>(size());
+			Keys(root, out);
+			return out;
+		}
+		private void Keys(Node x, List<Key> out) {
+			if (x == null) return;
+			Keys(x.left, out);
+			out.add(x.key);
+			Keys(x.right, out);
+		}
+
+		private Node RotateLeft(Node h) {
+			Node x = h.right;
+			h.right = x.left;
+			x.left = h;
+			x.color = x.left.color;
+			x.left.color = RED;
+			x.size = h.size;
+			h.size = Size(h.left) + Size(h.right) + 1;
+			return x;
+		}
+		private Node RotateRight(Node h) {
+			Node x = h.left;
+			h.left = x.right;
+			x.right = h;
+			x.color = x.right.color;
+			x.right.color = RED;
+			x.size = h.size;
+			h.size = Size(h.left) + Size(h.right) + 1;
+			return x;
+		}
+		private void FlipColors(Node h) {
+			h.color = !h.color;
+			h.left.color = !h.left.color;
+			h.right.color = !h.right.color;
+		}
+		private Node MoveRedLeft(Node h) {
+			FlipColors(h);
+			if (IsRed(h.right.left)) {
+				h.right = RotateRight(h.right);
+				h = RotateLeft(h);
+				FlipColors(h);
+			}
+			return h;
+		}
+		private Node MoveRedRight(Node h) {
+			FlipColors(h);
+			if (IsRed(h.left.left)) {
+				h = RotateRight(h);
+				FlipColors(h);
+			}
+			return h;
+		}
+		private Node Balance(Node h) {
+			if (IsRed(h.right) && !IsRed(h.left)) {
+				h = RotateLeft(h);
+			}
+			if (IsRed(h.left) && IsRed(h.left.left)) {
+				h = RotateRight(h);
+			}
+			if (IsRed(h.left) && IsRed(h.right)) {
+				FlipColors(h);
+			}
+			h.size = Size(h.left) + Size(h.right) + 1;
+			return h;
+		}
+	}
+
+	// The keys 0 to n - 1 in a random order
+	private static Integer[] Shuffled(int n) {
+		Random random = new Random(232);
+		Integer[] keys = new Integer[n];
+		for (int i = 0; i < n; i++) {
+			keys[i] = i;
+		}
+		for (int i = n - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			Integer swap = keys[i];
+			keys[i] = keys[j];
+			keys[j] = swap;
+		}
+		return keys;
+	}
+}
@@ -1,6 +1,14 @@
-import java.util.LinkedList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.NoSuchElementException;
-import java.util.Queue;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * This class will organize the 3 largest daily covid cases
@@ -11,7 +19,7 @@ import java.util.Queue;
  * @author Bryce Lehnen
  */
 
-public class RedBlackTree<Key extends Comparable<Key>, Value> {
+public class RedBlackTree<Key extends Comparable<Key>, Value> implements OrderedSymbolTable<Key, Value> {
 	
 	/**
 	 * Creates red and black varaibles and the node class
@@ -22,7 +30,17 @@ public class RedBlackTree<Key extends Comparable<Key>, Value> {
 	private static final boolean BLACK = false;
 	private Node root;
 	
-	private class Node {
+	// Reused by the iterative insert and delete as the stack of nodes
+	// on the way down, so they do not allocate or recurse. The height
+	// is at most 2 lg n so 64 levels is enough for any int size
+	private static final int MAX_DEPTH = 64;
+	private Node[] path;
+	private boolean[] wentLeft;
+	// Counts the calls that use the path, so computeIfAbsent() can
+	// tell if its mapping function changed the tree under it
+	private int modCount;
+	
+	private class Node implements Map.Entry<Key, Value> {
 		private Key key;			// Key
 		private Value val;			// Data
 		private Node left, right;	// Links to children
@@ -36,6 +54,34 @@ public class RedBlackTree<Key extends Comparable<Key>, Value> {
 			this.color = color;
 			this.size = size;
 		}
+		
+		// Lets the iterators hand out the nodes as entries
+		public Key getKey() {
+			return key;
+		}
+		public Value getValue() {
+			return val;
+		}
+		public Value setValue(Value val) {
+			if (val == null) throw new IllegalArgumentException("argument to setValue() is null");
+			Value old = this.val;
+			this.val = val;
+			return old;
+		}
+		
+		// Equal to any Map.Entry with an equal key and value, as Map.Entry says
+		public boolean equals(Object o) {
+			if (o == this) return true;
+			if (!(o instanceof Map.Entry)) return false;
+			Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+			return key.equals(e.getKey()) && val.equals(e.getValue());
+		}
+		public int hashCode() {
+			return key.hashCode() ^ val.hashCode();
+		}
+		public String toString() {
+			return key + "=" + val;
+		}
 	}
 	
 	/**
@@ -44,6 +90,166 @@ public class RedBlackTree<Key extends Comparable<Key>, Value> {
 	public RedBlackTree() {
 	}
 	
+	/**
+	 * Builds a tree from the given keys and values in linear time
+	 * instead of calling insert() once per key
+	 * 
+	 * The keys should already be in ascending order. If they are not,
+	 * they are sorted first which costs O(n log n). If a key shows up
+	 * more than once the last value wins, the same as with insert()
+	 * 
+	 * @param keys The keys, keys[i] goes with vals[i]
+	 * @param vals The values
+	 * @return A balanced tree holding every key
+	 */
+	public static <Key extends Comparable<Key>, Value> RedBlackTree<Key, Value> bulkLoad(Key[] keys, Value[] vals) {
+		if (keys == null) throw new IllegalArgumentException("first argument to bulkLoad() is null");
+		if (vals == null) throw new IllegalArgumentException("second argument to bulkLoad() is null");
+		if (keys.length != vals.length) throw new IllegalArgumentException("bulkLoad() needs one value per key");
+		
+		RedBlackTree<Key, Value> tree = new RedBlackTree<Key, Value>();
+		tree.BulkLoad(keys, vals, keys.length);
+		return tree;
+	}
+	
+	/**
+	 * Collects key/value pairs (for example while reading a file)
+	 * and builds the tree from them all at once with bulkLoad()
+	 */
+	public static class Builder<Key extends Comparable<Key>, Value> {
+		private Object[] keys = new Object[16];
+		private Object[] vals = new Object[16];
+		private int n;
+		
+		// Adds a pair, the same key added twice keeps the last value
+		public Builder<Key, Value> add(Key key, Value val) {
+			if (key == null) throw new IllegalArgumentException("first argument to add() is null");
+			if (val == null) throw new IllegalArgumentException("second argument to add() is null");
+			if (n == keys.length) {
+				keys = Arrays.copyOf(keys, n * 2);
+				vals = Arrays.copyOf(vals, n * 2);
+			}
+			keys[n] = key;
+			vals[n] = val;
+			n++;
+			return this;
+		}
+		
+		// Builds the tree from everything added so far
+		public RedBlackTree<Key, Value> build() {
+			RedBlackTree<Key, Value> tree = new RedBlackTree<Key, Value>();
+			tree.BulkLoad(keys, vals, n);
+			return tree;
+		}
+	}
+	
+	/**
+	 * Sorts and removes duplicate keys if needed, then
+	 * builds the tree from the first n pairs
+	 */
+	@SuppressWarnings("unchecked")
+	private void BulkLoad(Object[] keys, Object[] vals, int n) {
+		// Checks if the keys are already in order and unique
+		boolean sorted = true;
+		boolean unique = true;
+		for (int i = 0; i < n; i++) {
+			if (keys[i] == null) throw new IllegalArgumentException("bulkLoad() given a null key");
+			if (vals[i] == null) throw new IllegalArgumentException("bulkLoad() given a null value");
+			if (i > 0) {
+				int cmp = ((Key) keys[i - 1]).compareTo((Key) keys[i]);
+				if (cmp > 0) sorted = false;
+				if (cmp == 0) unique = false;
+			}
+		}
+		
+		if (!sorted || !unique) {
+			// Sorts the positions instead of the keys so each key keeps its value
+			// The sort is stable so equal keys stay in the order they were given
+			Integer[] order = new Integer[n];
+			for (int i = 0; i < n; i++) {
+				order[i] = i;
+			}
+			if (!sorted) {
+				final Object[] k = keys;
+				Arrays.sort(order, (a, b) -> ((Key) k[a]).compareTo((Key) k[b]));
+			}
+			
+			// Keeps only the last pair for each key
+			Object[] skeys = new Object[n];
+			Object[] svals = new Object[n];
+			int m = 0;
+			for (int i = 0; i < n; i++) {
+				Key key = (Key) keys[order[i]];
+				if (m > 0 && key.compareTo((Key) skeys[m - 1]) == 0) {
+					m--;
+				}
+				skeys[m] = key;
+				svals[m] = vals[order[i]];
+				m++;
+			}
+			keys = skeys;
+			vals = svals;
+			n = m;
+		}
+		
+		root = Build(keys, vals, 0, n, BlackHeight(n));
+	}
+	
+	// A 2-3 tree with black height bh has between 2^bh - 1 and 3^bh - 1 keys,
+	// so the largest bh with 2^bh - 1 <= n always fits all n keys
+	// Also used by the bulk loads of the primitive trees
+	static int BlackHeight(int n) {
+		return 31 - Integer.numberOfLeadingZeros(n + 1);
+	}
+	
+	// MOST_KEYS[bh] is the most keys a 2-3 tree with black height bh can hold (3^bh - 1)
+	static final long[] MOST_KEYS = new long[32];
+	static {
+		long power = 1;
+		for (int bh = 0; bh < MOST_KEYS.length; bh++) {
+			MOST_KEYS[bh] = power - 1;
+			power *= 3;
+		}
+	}
+	
+	/**
+	 * Builds a black rooted subtree with the given black height out of
+	 * keys[lo] to keys[lo + n - 1]. The root becomes a 2-node (one black node)
+	 * if the keys fit under two children, otherwise it becomes a 3-node
+	 * (a black node with a red left child) with three children.
+	 * The keys are split as evenly as possible between the children
+	 */
+	@SuppressWarnings("unchecked")
+	private Node Build(Object[] keys, Object[] vals, int lo, int n, int bh) {
+		if (n == 0) return null;
+		
+		// Most keys a child with black height bh - 1 can hold
+		long most = MOST_KEYS[bh - 1];
+		
+		if (n - 1 <= 2 * most) {
+			int ln = (n - 1) / 2;
+			int mid = lo + ln;
+			Node x = new Node((Key) keys[mid], (Value) vals[mid], BLACK, n);
+			x.left = Build(keys, vals, lo, ln, bh - 1);
+			x.right = Build(keys, vals, mid + 1, n - 1 - ln, bh - 1);
+			return x;
+		}
+		
+		int rest = n - 2;
+		int an = rest / 3;
+		int bn = (rest - an) / 2;
+		int cn = rest - an - bn;
+		int ymid = lo + an;
+		int xmid = ymid + 1 + bn;
+		Node y = new Node((Key) keys[ymid], (Value) vals[ymid], RED, an + bn + 1);
+		y.left = Build(keys, vals, lo, an, bh - 1);
+		y.right = Build(keys, vals, ymid + 1, bn, bh - 1);
+		Node x = new Node((Key) keys[xmid], (Value) vals[xmid], BLACK, n);
+		x.left = y;
+		x.right = Build(keys, vals, xmid + 1, cn, bh - 1);
+		return x;
+	}
+	
 	/**
 	 * Helper methods
 	 * 
@@ -85,53 +291,73 @@ public class RedBlackTree<Key extends Comparable<Key>, Value> {
 			return;
 		}
 		
-		root = Insert(root, key, val);
+		InsertIterative(key, val);
 		root.color = BLACK;
 	}
 	
 	/**
-	 * Inserts given data into the BST. If it already exists
-	 * ie. the number for new cases is already in the tree
-	 * then it does not overwrite it
-	 * 
-	 * Taken from https://algs4.cs.princeton.edu/code/edu/princeton/cs/algs4/RedBlackBST.java.html
-	 * 
-	 * @param n The current node in the BST
-	 * @param data The continent, country, date, total cases, new cases, and population 
+	 * Inserts without recursion. Walks down to the key remembering
+	 * the path, then walks back up the path balancing each node the
+	 * way the recursive algs4 insert does after each call returns
 	 */
-	private Node Insert(Node h, Key key, Value val) {
-		// Placed new node
-		if (h == null) {
-			return new Node(key, val, RED, 1);
-		}
-		
-		int cmp = key.compareTo(h.key);
-		// Uses recursion based on whether the key
-		// is less than or greater than the current key
-		if (cmp < 0) {
-			h.left = Insert(h.left, key, val);
-		}
-		else if (cmp > 0) {
-			h.right = Insert(h.right, key, val);
-		}
-		else {
-			h.val = val;
+	private void InsertIterative(Key key, Value val) {
+		modCount++;
+		int depth = 0;
+		Node x = root;
+		while (x != null) {
+			int cmp = key.compareTo(x.key);
+			if (cmp == 0) {
+				// Nothing above changes when a value is overwritten
+				x.val = val;
+				Release(depth);
+				return;
+			}
+			depth = Push(depth, x, cmp < 0);
+			x = cmp < 0 ? x.left : x.right;
 		}
 		
-		// Rotates the BST to keep it in balance
-		if (IsRed(h.right) && !IsRed(h.left)) {
-			h = RotateLeft(h);
-		}
-		if (IsRed(h.left) && IsRed(h.left.left)) {
-			h = RotateRight(h);
+		Node h = new Node(key, val, RED, 1);
+		root = Unwind(depth, h);
+	}
+	
+	/**
+	 * Iterative helpers, path[i] is the node at depth i
+	 * and wentLeft[i] is which child was taken from it
+	 */
+	// Adds a node to the path and returns the new depth
+	private int Push(int depth, Node h, boolean left) {
+		if (path == null) {
+			path = NewPath();
+			wentLeft = new boolean[MAX_DEPTH];
 		}
-		if (IsRed(h.left) && IsRed(h.right)) {
-			FlipColors(h);
+		path[depth] = h;
+		wentLeft[depth] = left;
+		return depth + 1;
+	}
+	@SuppressWarnings("unchecked")
+	private Node[] NewPath() {
+		return (Node[]) new RedBlackTree<?, ?>.Node[MAX_DEPTH];
+	}
+	// Clears the first depth nodes of a path that will not be
+	// unwound, so the scratch array does not keep them alive
+	private void Release(int depth) {
+		if (path != null) Arrays.fill(path, 0, depth, null);
+	}
+	// Links child (the new root of the subtree below the bottom of the
+	// path) back in and balances every node on the way back up to the root
+	private Node Unwind(int depth, Node child) {
+		for (int i = depth - 1; i >= 0; i--) {
+			Node h = path[i];
+			if (wentLeft[i]) {
+				h.left = child;
+			}
+			else {
+				h.right = child;
+			}
+			path[i] = null;
+			child = Balance(h);
 		}
-		
-		// Corrects the size and returns h
-		h.size = Size(h.left) + Size(h.right) + 1;  
-		return h;
+		return child;
 	}
 	
 	/**
@@ -195,42 +421,66 @@ public class RedBlackTree<Key extends Comparable<Key>, Value> {
 			root.color = RED;
 		}
 		
-		root = Delete(root, key);
+		root = DeleteIterative(key);
 		if (!IsEmpty()) {
 			root.color = BLACK;
 		}
 	}
-	// Different cases based on the configuration of children
-	// and the color of those children to rotate and balance
-	// the tree
-	private Node Delete(Node h, Key key) {
-		if (key.compareTo(h.key) < 0) {
-			if (IsRed(h.left) && !IsRed(h.left.left)) {
-				h = MoveRedLeft(h);
-			}
-			h.left = Delete(h.left, key);
-		}
-		else {
-			if (IsRed(h.left)) {
-				h = RotateRight(h);
-			}
-			if (key.compareTo(h.key) == 0 && (h.right == null)) {
-				return null;
-			}
-			if (!IsRed(h.right) && !IsRed(h.right.left)) {
-				h = MoveRedRight(h);
+	
+	/**
+	 * Deletes without recursion. The changes the recursive algs4
+	 * delete makes on the way down are made while walking down, the
+	 * Balance() calls it makes as each recursive call returns are
+	 * made by Unwind() on the way back up.
+	 * A null key deletes the minimum
+	 * 
+	 * @return The new root
+	 */
+	private Node DeleteIterative(Key key) {
+		modCount++;
+		int depth = 0;
+		Node h = root;
+		// Once the key is found it is replaced by the minimum of its right
+		// subtree, and from then on that minimum is what gets deleted
+		boolean min = key == null;
+		
+		while (true) {
+			if (min) {
+				if (h.left == null) break;
+				if (!IsRed(h.left) && !IsRed(h.left.left)) {
+					h = MoveRedLeft(h);
+				}
+				depth = Push(depth, h, true);
+				h = h.left;
 			}
-			if (key.compareTo(h.key) == 0) {
-				Node x = Min(h.right);
-				h.key = x.key;
-				h.val = x.val;
-				h.right = DeleteMin(h.right);
+			else if (key.compareTo(h.key) < 0) {
+				if (!IsRed(h.left) && !IsRed(h.left.left)) {
+					h = MoveRedLeft(h);
+				}
+				depth = Push(depth, h, true);
+				h = h.left;
 			}
 			else {
-				h.right = Delete(h.right, key);
+				if (IsRed(h.left)) {
+					h = RotateRight(h);
+				}
+				if (key.compareTo(h.key) == 0 && (h.right == null)) break;
+				if (!IsRed(h.right) && !IsRed(h.right.left)) {
+					h = MoveRedRight(h);
+				}
+				if (key.compareTo(h.key) == 0) {
+					Node x = Min(h.right);
+					h.key = x.key;
+					h.val = x.val;
+					min = true;
+				}
+				depth = Push(depth, h, false);
+				h = h.right;
 			}
 		}
-		return Balance(h);
+		
+		// h is the node being removed so its parent now links to null
+		return Unwind(depth, null);
 	}
 	
 	/**
@@ -273,22 +523,11 @@ public class RedBlackTree<Key extends Comparable<Key>, Value> {
 			root.color = RED;
 		}
 		
-		root = DeleteMin(root);
+		root = DeleteIterative(null);
 		if (!IsEmpty()) {
 			root.color = BLACK;
 		}
 	}
-	private Node DeleteMin(Node h) {
-		if (h.left == null) {
-			return null;
-		}
-		if (!IsRed(h.left) && !IsRed(h.left.left)) {
-			h = MoveRedLeft(h);
-		}
-		
-		h.left = DeleteMin(h.left);
-		return Balance(h);
-	}
 	
 	/**
 	 * Balances the tree with RotateLeft, RotateRight, and FlipColors
@@ -357,12 +596,10 @@ public class RedBlackTree<Key extends Comparable<Key>, Value> {
 		return Min(root).key;
 	}
 	private Node Min(Node x) {
-		if (x.left == null) {
-			return x;
-		}
-		else {
-			return Min(x.left);
+		while (x.left != null) {
+			x = x.left;
 		}
+		return x;
 	}
 	
 	/**
@@ -376,12 +613,10 @@ public class RedBlackTree<Key extends Comparable<Key>, Value> {
 		return Max(root).key;
 	}
 	private Node Max(Node x) {
-		if (x.right == null) {
-			return x;
-		}
-		else {
-			return Max(x.right);
+		while (x.right != null) {
+			x = x.right;
 		}
+		return x;
 	}
 	
 	/**
@@ -394,6 +629,86 @@ public class RedBlackTree<Key extends Comparable<Key>, Value> {
 		return get(key) != null;
 	}
 	
+	/**
+	 * Returns the value for the given key, or the
+	 * given default if the key is not in the tree
+	 */
+	public Value getOrDefault(Key key, Value defaultValue) {
+		Value val = get(key);
+		if (val == null) return defaultValue;
+		return val;
+	}
+	
+	/**
+	 * Inserts the key/value pair only if the key is not already
+	 * in the tree. Unlike Contains() followed by insert() this
+	 * only walks down the tree once
+	 * 
+	 * @return The value already stored for the key, or null if
+	 *         the key was not there and has been inserted
+	 */
+	public Value putIfAbsent(Key key, Value val) {
+		if (key == null) throw new IllegalArgumentException("first argument to putIfAbsent() is null");
+		if (val == null) throw new IllegalArgumentException("second argument to putIfAbsent() is null");
+		
+		modCount++;
+		int depth = 0;
+		Node x = root;
+		while (x != null) {
+			int cmp = key.compareTo(x.key);
+			if (cmp == 0) {
+				Release(depth);
+				return x.val;
+			}
+			depth = Push(depth, x, cmp < 0);
+			x = cmp < 0 ? x.left : x.right;
+		}
+		
+		root = Unwind(depth, new Node(key, val, RED, 1));
+		root.color = BLACK;
+		return null;
+	}
+	
+	/**
+	 * Returns the value for the given key. If the key is not in the
+	 * tree the value is made by the given function and inserted
+	 * in the same walk down the tree. If the function returns null
+	 * nothing is inserted. The function must not change the tree
+	 * 
+	 * @return The value that is now stored for the key, or null
+	 */
+	public Value computeIfAbsent(Key key, Function<? super Key, ? extends Value> mapping) {
+		if (key == null) throw new IllegalArgumentException("first argument to computeIfAbsent() is null");
+		if (mapping == null) throw new IllegalArgumentException("second argument to computeIfAbsent() is null");
+		
+		int expected = ++modCount;
+		int depth = 0;
+		Node x = root;
+		while (x != null) {
+			int cmp = key.compareTo(x.key);
+			if (cmp == 0) {
+				Release(depth);
+				return x.val;
+			}
+			depth = Push(depth, x, cmp < 0);
+			x = cmp < 0 ? x.left : x.right;
+		}
+		
+		// The path would no longer match the tree if the function changed it
+		Value val = mapping.apply(key);
+		if (modCount != expected) {
+			Release(depth);
+			throw new ConcurrentModificationException("computeIfAbsent() function changed the tree");
+		}
+		if (val == null) {
+			Release(depth);
+			return null;
+		}
+		root = Unwind(depth, new Node(key, val, RED, 1));
+		root.color = BLACK;
+		return val;
+	}
+	
 	/**
 	 * Returns the color of the given node
 	 */
@@ -421,48 +736,325 @@ public class RedBlackTree<Key extends Comparable<Key>, Value> {
 		return false;
 	}
 	
+	/**
+	 * Order statistic methods, these use the size kept on every
+	 * node so each one only walks one path down the tree
+	 * 
+	 * Taken from https://algs4.cs.princeton.edu/code/edu/princeton/cs/algs4/RedBlackBST.java.html
+	 */
+	// Returns the number of keys strictly less than the given key
+	public int rank(Key key) {
+		if (key == null) throw new IllegalArgumentException("argument to rank() is null");
+		return Rank(key, root);
+	}
+	private int Rank(Key key, Node x) {
+		int rank = 0;
+		while (x != null) {
+			int cmp = key.compareTo(x.key);
+			if (cmp < 0) {
+				x = x.left;
+			}
+			else if (cmp > 0) {
+				rank += 1 + Size(x.left);
+				x = x.right;
+			}
+			else {
+				return rank + Size(x.left);
+			}
+		}
+		return rank;
+	}
+	
+	// Returns the key with the given rank, select(0) is the minimum
+	public Key select(int rank) {
+		if (rank < 0 || rank >= size()) {
+			throw new IllegalArgumentException("argument to select() is invalid: " + rank);
+		}
+		return Select(root, rank).key;
+	}
+	private Node Select(Node x, int rank) {
+		while (true) {
+			int leftSize = Size(x.left);
+			if (rank < leftSize) {
+				x = x.left;
+			}
+			else if (rank > leftSize) {
+				rank -= leftSize + 1;
+				x = x.right;
+			}
+			else {
+				return x;
+			}
+		}
+	}
+	
+	// Returns the largest key less than or equal to the given key
+	public Key floor(Key key) {
+		if (key == null) throw new IllegalArgumentException("argument to floor() is null");
+		Node x = root;
+		Node best = null;
+		while (x != null) {
+			int cmp = key.compareTo(x.key);
+			if (cmp == 0) return x.key;
+			if (cmp < 0) {
+				x = x.left;
+			}
+			else {
+				best = x;
+				x = x.right;
+			}
+		}
+		if (best == null) throw new NoSuchElementException("argument to floor() is too small");
+		return best.key;
+	}
+	
+	// Returns the smallest key greater than or equal to the given key
+	public Key ceiling(Key key) {
+		if (key == null) throw new IllegalArgumentException("argument to ceiling() is null");
+		Node x = root;
+		Node best = null;
+		while (x != null) {
+			int cmp = key.compareTo(x.key);
+			if (cmp == 0) return x.key;
+			if (cmp > 0) {
+				x = x.right;
+			}
+			else {
+				best = x;
+				x = x.left;
+			}
+		}
+		if (best == null) throw new NoSuchElementException("argument to ceiling() is too large");
+		return best.key;
+	}
+	
+	// Returns the number of keys between lo and hi (inclusive)
+	public int countInRange(Key lo, Key hi) {
+		if (lo == null) throw new IllegalArgumentException("first argument to countInRange() is null");
+		if (hi == null) throw new IllegalArgumentException("second argument to countInRange() is null");
+		if (lo.compareTo(hi) > 0) return 0;
+		if (Contains(hi)) return rank(hi) - rank(lo) + 1;
+		return rank(hi) - rank(lo);
+	}
+	
+	/**
+	 * Returns the key at the given percentile using the nearest rank
+	 * method, ie. percentile(95) is the smallest key that is greater
+	 * than or equal to 95% of the keys
+	 * 
+	 * @param p From 0 to 100
+	 */
+	public Key percentile(double p) {
+		if (IsEmpty()) throw new NoSuchElementException("calls percentile() with empty symbol table");
+		if (!(p >= 0 && p <= 100)) throw new IllegalArgumentException("argument to percentile() is invalid: " + p);
+		return select(PercentileRank(p, size()));
+	}
+	// Returns the lower median when there are an even number of keys
+	public Key median() {
+		return percentile(50);
+	}
+	// Rank of the nearest rank percentile out of n keys
+	static int PercentileRank(double p, int n) {
+		int rank = (int) Math.ceil(p / 100.0 * n) - 1;
+		return Math.max(0, Math.min(n - 1, rank));
+	}
+	
 	/**
 	 * Returns all the keys in the RBT
 	 * 
 	 * Taken from https://algs4.cs.princeton.edu/code/edu/princeton/cs/algs4/RedBlackBST.java.html
 	 */
 	public Iterable<Key> keys() {
-		return keys(min(), max());
+		return () -> new KeyIterator(new EntryIterator(root, 0, size()));
 	}
 	
 	/**
 	 * Returns all the keys in a given range
+	 * The keys are found as they are iterated over instead of being
+	 * copied into a list first, so a scan uses constant extra memory
 	 * 
 	 * Taken from https://algs4.cs.princeton.edu/code/edu/princeton/cs/algs4/RedBlackBST.java.html
 	 */
 	public Iterable<Key> keys(Key lo, Key hi) {
-		if (lo == null) throw new IllegalArgumentException("first argument to keys() is null");
-        if (hi == null) throw new IllegalArgumentException("second argument to keys() is null");
-        
-        Queue<Key> queue = new LinkedList<>();
-        Keys(root, queue, lo, hi);
-        return queue;
+		Iterable<Map.Entry<Key, Value>> entries = entries(lo, hi);
+		return () -> new KeyIterator(entries.iterator());
 	}
 	
 	/**
-	 * Adds the keys between hi and lo in the subtree of rooted at x
-	 * Ie. every node from lo to x to hi (lo<x<hi)
+	 * Returns the key/value pairs from lo to hi (inclusive) in
+	 * ascending order. Each entry is the node itself so nothing is
+	 * allocated per key and the loop can stop early at no cost
 	 * 
-	 * Taken from https://algs4.cs.princeton.edu/code/edu/princeton/cs/algs4/RedBlackBST.java.html
+	 * The tree should not be changed while iterating
+	 */
+	public Iterable<Map.Entry<Key, Value>> entries(Key lo, Key hi) {
+		if (lo == null) throw new IllegalArgumentException("first argument to entries() is null");
+		if (hi == null) throw new IllegalArgumentException("second argument to entries() is null");
+		return () -> new EntryIterator(root, lo, countInRange(lo, hi), false);
+	}
+	
+	/**
+	 * Returns the key/value pairs from hi down to lo (inclusive)
+	 */
+	public Iterable<Map.Entry<Key, Value>> descendingEntries(Key lo, Key hi) {
+		if (lo == null) throw new IllegalArgumentException("first argument to descendingEntries() is null");
+		if (hi == null) throw new IllegalArgumentException("second argument to descendingEntries() is null");
+		return () -> new EntryIterator(root, hi, countInRange(lo, hi), true);
+	}
+	
+	/**
+	 * Returns every key/value pair as a stream. A parallel stream
+	 * splits the tree by rank, so each half gets the same number
+	 * of entries no matter what the keys are
+	 */
+	public Stream<Map.Entry<Key, Value>> stream() {
+		return StreamSupport.stream(new EntrySpliterator(0, size()), false);
+	}
+	
+	/**
+	 * Returns the key/value pairs from lo to hi (inclusive) as a stream
+	 */
+	public Stream<Map.Entry<Key, Value>> stream(Key lo, Key hi) {
+		if (lo == null) throw new IllegalArgumentException("first argument to stream() is null");
+		if (hi == null) throw new IllegalArgumentException("second argument to stream() is null");
+		int from = rank(lo);
+		return StreamSupport.stream(new EntrySpliterator(from, from + countInRange(lo, hi)), false);
+	}
+	
+	/**
+	 * Walks the tree in order with an explicit stack that holds the
+	 * nodes whose left side has been listed but which have not been
+	 * returned yet. The stack never holds more than the height of
+	 * the tree, and it stops after a set number of entries so the
+	 * end of the range never has to be compared
+	 */
+	private class EntryIterator implements Iterator<Map.Entry<Key, Value>> {
+		private final Node[] stack = NewPath();
+		private int depth;
+		private int remaining;
+		private final boolean descending;
+		
+		// Starts at the first key >= start, or <= start when descending
+		private EntryIterator(Node x, Key start, int count, boolean descending) {
+			this.remaining = count;
+			this.descending = descending;
+			while (x != null) {
+				int cmp = start.compareTo(x.key);
+				if (cmp == 0) {
+					stack[depth++] = x;
+					break;
+				}
+				if ((cmp < 0) != descending) {
+					stack[depth++] = x;
+					x = descending ? x.right : x.left;
+				}
+				else {
+					x = descending ? x.left : x.right;
+				}
+			}
+		}
+		
+		// Starts at the key with the given rank
+		private EntryIterator(Node x, int rank, int count) {
+			this.remaining = count;
+			this.descending = false;
+			while (x != null) {
+				int leftSize = Size(x.left);
+				if (rank < leftSize) {
+					stack[depth++] = x;
+					x = x.left;
+				}
+				else if (rank > leftSize) {
+					rank -= leftSize + 1;
+					x = x.right;
+				}
+				else {
+					stack[depth++] = x;
+					break;
+				}
+			}
+		}
+		
+		public boolean hasNext() {
+			return remaining > 0 && depth > 0;
+		}
+		
+		public Map.Entry<Key, Value> next() {
+			if (!hasNext()) throw new NoSuchElementException();
+			Node next = stack[--depth];
+			stack[depth] = null;
+			remaining--;
+			
+			// Queues the next side of the node that was just returned
+			Node x = descending ? next.left : next.right;
+			while (x != null) {
+				stack[depth++] = x;
+				x = descending ? x.right : x.left;
+			}
+			return next;
+		}
+	}
+	
+	/**
+	 * Turns an entry iterator into a key iterator
 	 */
-	private void Keys(Node x, Queue<Key> queue, Key lo, Key hi) {
-		if (x == null) return;
-		int cmplo = lo.compareTo(x.key);
-		int cmphi = hi.compareTo(x.key);
+	private class KeyIterator implements Iterator<Key> {
+		private final Iterator<Map.Entry<Key, Value>> entries;
 		
-		if (cmplo < 0) {
-			Keys(x.left, queue, lo, hi);
+		private KeyIterator(Iterator<Map.Entry<Key, Value>> entries) {
+			this.entries = entries;
 		}
-		if (cmplo <= 0 && cmphi >= 0) {
-			queue.add(x.key);
+		public boolean hasNext() {
+			return entries.hasNext();
 		}
-		if (cmphi > 0) {
-			Keys(x.right, queue, lo, hi);
+		public Key next() {
+			return entries.next().getKey();
+		}
+	}
+	
+	/**
+	 * Covers the entries with ranks from to to - 1. Splitting hands
+	 * the lower half to a new spliterator, which only needs the ranks
+	 * because select() can find where any rank starts
+	 */
+	private class EntrySpliterator implements Spliterator<Map.Entry<Key, Value>> {
+		private int from, to;
+		private EntryIterator iterator;	// Created when the first entry is needed
+		
+		private EntrySpliterator(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+		
+		public boolean tryAdvance(Consumer<? super Map.Entry<Key, Value>> action) {
+			if (iterator == null) {
+				iterator = new EntryIterator(root, from, to - from);
+			}
+			if (!iterator.hasNext()) return false;
+			action.accept(iterator.next());
+			return true;
+		}
+		
+		public Spliterator<Map.Entry<Key, Value>> trySplit() {
+			// Can only split before walking has started
+			if (iterator != null || to - from < 2) return null;
+			int mid = (from + to) >>> 1;
+			EntrySpliterator prefix = new EntrySpliterator(from, mid);
+			from = mid;
+			return prefix;
+		}
+		
+		public long estimateSize() {
+			if (iterator != null) return iterator.remaining;
+			return to - from;
+		}
+		
+		public int characteristics() {
+			return ORDERED | SORTED | DISTINCT | NONNULL | SIZED | SUBSIZED;
+		}
+		
+		public Comparator<? super Map.Entry<Key, Value>> getComparator() {
+			return Map.Entry.comparingByKey();
 		}
 	}
 }
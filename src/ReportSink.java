@@ -0,0 +1,465 @@
+import java.io.Closeable;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Writes the lines of the report to any number of outputs at once,
+ * such as the console, the report file and a JSON copy of it
+ *
+ * Each line is encoded to bytes once, into a buffer that is reused for
+ * every line, and those bytes are copied into a 64 KB buffer per output
+ * A full buffer is written to the output's channel in one call. Lines
+ * for a JSON output are escaped from the same bytes
+ *
+ * When async is on the full buffers are handed to a background thread
+ * that does the writing, so the report does not wait on the disk or
+ * the console. Each output has a few spare buffers and if the thread
+ * falls behind by more than that the next line waits for it. An error
+ * on the thread is thrown by the next flush() or close()
+ *
+ * Nothing is lost as long as close() is called, it writes what is
+ * still buffered, waits for the thread and closes the files. It does
+ * this even if an earlier write failed, and then throws that failure
+ * The methods are synchronized so close() can be called from a
+ * shutdown hook while another thread is writing a line
+ *
+ * @author Bryce Lehnen
+ */
+public class ReportSink implements Closeable {
+
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final int SPARE_BUFFERS = 2;		// Per output when async
+
+	private static final byte[] NEWLINE = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] JSON_START = "{\"lines\": [".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] JSON_FIRST = "\n  \"".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] JSON_NEXT = ",\n  \"".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] JSON_END = "\n]}\n".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+	// What the background thread is asked to do
+	private static final int WRITE = 0;
+	private static final int TRUNCATE = 1;
+	private static final int FLUSH = 2;
+	private static final int STOP = 3;
+
+	/**
+	 * One output
+	 */
+	private static class Target {
+		private final WritableByteChannel channel;
+		private final boolean json;		// Lines are written as a JSON array
+		private final boolean file;		// Opened by the sink, emptied by restart() and closed by close()
+		private ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE);
+		private boolean empty = true;	// No line in the JSON array yet
+
+		private Target(WritableByteChannel channel, boolean json, boolean file) {
+			this.channel = channel;
+			this.json = json;
+			this.file = file;
+		}
+	}
+
+	/**
+	 * A job for the background thread
+	 */
+	private static class Chunk {
+		private final int kind;
+		private final Target target;
+		private final ByteBuffer buf;
+		private final CountDownLatch done;
+
+		private Chunk(int kind, Target target, ByteBuffer buf, CountDownLatch done) {
+			this.kind = kind;
+			this.target = target;
+			this.buf = buf;
+			this.done = done;
+		}
+	}
+
+	private final boolean async;
+	private final List<Target> targets = new ArrayList<Target>();
+	private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+			.onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+	private ByteBuffer line = ByteBuffer.allocate(256);	// The current line, encoded once
+	private boolean started;
+	private boolean closed;
+
+	// Only used when async
+	private BlockingQueue<Chunk> queue;
+	private BlockingQueue<ByteBuffer> spare;
+	private Thread drain;
+	private volatile IOException failure;
+
+	/**
+	 * Creates a sink with no outputs, add them before the first line
+	 *
+	 * @param async True to write on a background thread
+	 */
+	public ReportSink(boolean async) {
+		this.async = async;
+		if (async) {
+			queue = new LinkedBlockingQueue<Chunk>();
+			spare = new LinkedBlockingQueue<ByteBuffer>();
+			drain = new Thread(this::Drain, "report-writer");
+			drain.setDaemon(true);
+			drain.start();
+		}
+	}
+
+	/**
+	 * Adds standard output. It is written to directly, not through
+	 * System.out, and is left open by close()
+	 */
+	public void addConsole() {
+		Add(new Target(Channels.newChannel(new FileOutputStream(FileDescriptor.out)), false, false));
+	}
+
+	/**
+	 * Adds a text file, it is created or emptied
+	 */
+	public void addFile(String filename) throws IOException {
+		Add(new Target(Open(filename), false, true));
+	}
+
+	/**
+	 * Adds a JSON file that gets the lines as {"lines": ["...", ...]}
+	 * It is created or emptied
+	 */
+	public void addJson(String filename) throws IOException {
+		Target target = new Target(Open(filename), true, true);
+		Add(target);
+		Put(target, JSON_START);
+	}
+
+	private static FileChannel Open(String filename) throws IOException {
+		return FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+	}
+
+	private void Add(Target target) {
+		if (started) throw new IllegalStateException("outputs have to be added before the first line");
+		if (closed) throw new IllegalStateException("the report sink is closed");
+		targets.add(target);
+		if (async) {
+			for (int i = 0; i < SPARE_BUFFERS; i++) {
+				spare.add(ByteBuffer.allocate(BUFFER_SIZE));
+			}
+		}
+	}
+
+	/**
+	 * Writes the text followed by a line break to every output
+	 */
+	public synchronized void line(CharSequence text) throws IOException {
+		if (closed) throw new IllegalStateException("the report sink is closed");
+		started = true;
+		Encode(text);
+		for (Target target : targets) {
+			if (target.json) {
+				Put(target, target.empty ? JSON_FIRST : JSON_NEXT);
+				PutEscaped(target);
+				Put(target, (byte) '"');
+				target.empty = false;
+			}
+			else {
+				line.rewind();
+				Put(target, line);
+				Put(target, NEWLINE);
+			}
+		}
+	}
+
+	/**
+	 * Starts the report over. The files are emptied, the console
+	 * gets a blank line instead (even when it is redirected), then the
+	 * next line is the first line of the new report
+	 */
+	public synchronized void restart() throws IOException {
+		if (closed) throw new IllegalStateException("the report sink is closed");
+		for (Target target : targets) {
+			if (target.file) {
+				if (target.buf.position() > 0) {
+					Submit(target);
+				}
+				if (async) {
+					Enqueue(new Chunk(TRUNCATE, target, null, null));
+				}
+				else {
+					((SeekableByteChannel) target.channel).truncate(0);
+				}
+				if (target.json) {
+					Put(target, JSON_START);
+					target.empty = true;
+				}
+			}
+			else {
+				Put(target, NEWLINE);
+			}
+		}
+		Check();
+	}
+
+	/**
+	 * Writes everything that is buffered and, when async,
+	 * waits for the background thread to write it
+	 */
+	public synchronized void flush() throws IOException {
+		for (Target target : targets) {
+			if (target.buf.position() > 0) {
+				Submit(target);
+			}
+		}
+		if (async) {
+			CountDownLatch done = new CountDownLatch(1);
+			Enqueue(new Chunk(FLUSH, null, null, done));
+			try {
+				done.await();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("interrupted while flushing the report");
+			}
+		}
+		Check();
+	}
+
+	/**
+	 * Ends the JSON outputs, writes everything that is left,
+	 * stops the background thread and closes the files
+	 * Throws the first error from any of that or from an earlier
+	 * write on the background thread, after all of it is done
+	 */
+	public synchronized void close() throws IOException {
+		if (closed) return;
+		IOException error = null;
+		try {
+			for (Target target : targets) {
+				if (target.json) {
+					Put(target, JSON_END);
+				}
+			}
+			flush();
+		}
+		catch (IOException e) {
+			error = e;
+		}
+		closed = true;
+		if (async) {
+			// The thread writes everything queued before it stops
+			queue.add(new Chunk(STOP, null, null, null));
+			try {
+				drain.join();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				if (error == null) error = new InterruptedIOException("interrupted while closing the report");
+			}
+		}
+		for (Target target : targets) {
+			// Anything flush() did not get to is written here, once
+			// the background thread is no longer writing
+			try {
+				if (target.buf.position() > 0 && (drain == null || !drain.isAlive())) {
+					target.buf.flip();
+					Write(target.channel, target.buf);
+					target.buf.clear();
+				}
+			}
+			catch (IOException e) {
+				if (error == null) error = e;
+			}
+			if (target.file) {
+				try {
+					target.channel.close();
+				}
+				catch (IOException e) {
+					if (error == null) error = e;
+				}
+			}
+		}
+		if (error == null) error = failure;
+		failure = null;
+		if (error != null) throw error;
+	}
+
+	// Encodes the text into line, growing it if the text does not fit
+	private void Encode(CharSequence text) {
+		CharBuffer chars = CharBuffer.wrap(text);
+		encoder.reset();
+		line.clear();
+		while (encoder.encode(chars, line, true).isOverflow()) {
+			Grow();
+		}
+		while (encoder.flush(line).isOverflow()) {
+			Grow();
+		}
+		line.flip();
+	}
+
+	// Doubles the size of line, keeping what is in it
+	private void Grow() {
+		ByteBuffer bigger = ByteBuffer.allocate(line.capacity() * 2);
+		line.flip();
+		bigger.put(line);
+		line = bigger;
+	}
+
+	// Copies line into the target as a JSON string without the quotes
+	private void PutEscaped(Target target) throws IOException {
+		for (int i = 0; i < line.limit(); i++) {
+			byte b = line.get(i);
+			if (target.buf.remaining() < 6) {
+				Submit(target);
+			}
+			if (b == '"' || b == '\\') {
+				target.buf.put((byte) '\\').put(b);
+			}
+			else if (b >= 0 && b < 0x20) {
+				target.buf.put((byte) '\\').put((byte) 'u').put((byte) '0').put((byte) '0')
+						.put(HEX[b >> 4]).put(HEX[b & 0xf]);
+			}
+			else {
+				target.buf.put(b);
+			}
+		}
+	}
+
+	private void Put(Target target, byte b) throws IOException {
+		if (!target.buf.hasRemaining()) {
+			Submit(target);
+		}
+		target.buf.put(b);
+	}
+
+	private void Put(Target target, byte[] bytes) throws IOException {
+		Put(target, ByteBuffer.wrap(bytes));
+	}
+
+	// Copies the rest of bytes into the target, writing each buffer that fills up
+	private void Put(Target target, ByteBuffer bytes) throws IOException {
+		while (bytes.remaining() > target.buf.remaining()) {
+			ByteBuffer part = bytes.duplicate();
+			part.limit(part.position() + target.buf.remaining());
+			target.buf.put(part);
+			bytes.position(part.position());
+			Submit(target);
+		}
+		target.buf.put(bytes);
+	}
+
+	/**
+	 * Writes the target's buffer, or when async hands it to the
+	 * background thread and takes a spare one, waiting for one if
+	 * the thread is behind
+	 */
+	private void Submit(Target target) throws IOException {
+		target.buf.flip();
+		if (!async) {
+			Write(target.channel, target.buf);
+			target.buf.clear();
+			return;
+		}
+		try {
+			Enqueue(new Chunk(WRITE, target, target.buf, null));
+		}
+		catch (IOException e) {
+			// Keeps the bytes so close() can still write them
+			target.buf.position(target.buf.limit()).limit(target.buf.capacity());
+			throw e;
+		}
+		try {
+			target.buf = spare.take();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			target.buf = ByteBuffer.allocate(BUFFER_SIZE);
+			throw new InterruptedIOException("interrupted while writing the report");
+		}
+	}
+
+	private void Enqueue(Chunk chunk) throws IOException {
+		if (!drain.isAlive()) throw new IOException("the report writer thread has stopped");
+		queue.add(chunk);
+	}
+
+	// The background thread, works through the queue in order
+	// It only stops on STOP, after writing anything still queued
+	private void Drain() {
+		boolean stopping = false;
+		while (true) {
+			Chunk chunk;
+			if (stopping) {
+				chunk = queue.poll();
+				if (chunk == null) return;
+			}
+			else {
+				try {
+					chunk = queue.take();
+				}
+				catch (InterruptedException e) {
+					continue;
+				}
+			}
+			if (chunk.kind == STOP) {
+				stopping = true;
+				continue;
+			}
+			try {
+				if (chunk.kind == WRITE) {
+					Write(chunk.target.channel, chunk.buf);
+				}
+				else if (chunk.kind == TRUNCATE) {
+					((SeekableByteChannel) chunk.target.channel).truncate(0);
+				}
+			}
+			catch (IOException e) {
+				if (failure == null) {
+					failure = e;
+				}
+			}
+			finally {
+				if (chunk.kind == WRITE) {
+					chunk.buf.clear();
+					spare.add(chunk.buf);
+				}
+				else if (chunk.kind == FLUSH) {
+					chunk.done.countDown();
+				}
+			}
+		}
+	}
+
+	private static void Write(WritableByteChannel channel, ByteBuffer buf) throws IOException {
+		while (buf.hasRemaining()) {
+			channel.write(buf);
+		}
+	}
+
+	// Throws the first error the background thread ran into
+	private void Check() throws IOException {
+		IOException e = failure;
+		if (e != null) {
+			failure = null;
+			throw e;
+		}
+	}
+}
@@ -0,0 +1,159 @@
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Lines up several datasets by date into one table, a row per date
+ * and a column per dataset, in a single pass over all of them
+ *
+ * The rows are every date that any of the datasets has a reading on,
+ * found by merging the date ordered series the same way merge sort
+ * merges runs. A dataset that has no reading on a row's date takes
+ * its nearest reading that is at most tolerance days away, so the
+ * quarterly sea level can sit next to the monthly temperature and CO2
+ * Each dataset keeps its own index that only moves forward, making
+ * the join O(n * k) for n rows and k datasets instead of a tree
+ * lookup per row and dataset
+ *
+ * @author Bryce Lehnen
+ */
+public class SeriesJoin {
+
+	private final int[] days;			// Row dates in ascending order
+	private final double[][] values;	// values[c][row], NaN if column c has no reading
+
+	private SeriesJoin(int[] days, double[][] values) {
+		this.days = days;
+		this.values = values;
+	}
+
+	/**
+	 * Joins the series on their dates
+	 *
+	 * @param tolerance How many days away a reading can be and still
+	 *                  fill a row, 0 to only use readings on the exact date
+	 * @param series The datasets, one column each in the given order
+	 * @return The joined table
+	 */
+	public static SeriesJoin of(int tolerance, ColumnarSeries... series) {
+		if (tolerance < 0) throw new IllegalArgumentException("tolerance can not be negative: " + tolerance);
+		int k = series.length;
+
+		// First pass counts the distinct dates so the rows fit exactly
+		int[] next = new int[k];
+		int rows = 0;
+		while (Next(series, next) != Integer.MAX_VALUE) {
+			rows++;
+		}
+
+		int[] days = new int[rows];
+		double[][] values = new double[k][rows];
+		int[] at = new int[k];		// Last reading on or before the row's date
+		next = new int[k];
+		for (int row = 0; row < rows; row++) {
+			int day = Next(series, next);
+			days[row] = day;
+			for (int c = 0; c < k; c++) {
+				values[c][row] = Nearest(series[c], at, c, day, tolerance);
+			}
+		}
+		return new SeriesJoin(days, values);
+	}
+
+	/**
+	 * Returns the smallest date that one of the series has at its
+	 * next index and moves every series on that date past it
+	 * Returns Integer.MAX_VALUE when all of them are used up
+	 */
+	private static int Next(ColumnarSeries[] series, int[] next) {
+		int day = Integer.MAX_VALUE;
+		for (int c = 0; c < series.length; c++) {
+			if (next[c] < series[c].size()) {
+				day = Math.min(day, series[c].day(next[c]));
+			}
+		}
+		for (int c = 0; c < series.length; c++) {
+			if (next[c] < series[c].size() && series[c].day(next[c]) == day) {
+				next[c]++;
+			}
+		}
+		return day;
+	}
+
+	/**
+	 * Returns the reading of the series closest to the given day,
+	 * or NaN if it is more than tolerance days away. The earlier
+	 * reading wins a tie. at[c] is moved up to the last reading
+	 * on or before the day, which is where the next row starts
+	 */
+	private static double Nearest(ColumnarSeries s, int[] at, int c, int day, int tolerance) {
+		int n = s.size();
+		if (n == 0) return Double.NaN;
+		int i = at[c];
+		while (i + 1 < n && s.day(i + 1) <= day) {
+			i++;
+		}
+		at[c] = i;
+
+		long best = Long.MAX_VALUE;
+		double value = Double.NaN;
+		if (s.day(i) <= day) {
+			best = (long) day - s.day(i);
+			value = s.value(i);
+		}
+		int after = s.day(i) > day ? i : i + 1;
+		if (after < n && (long) s.day(after) - day < best) {
+			best = (long) s.day(after) - day;
+			value = s.value(after);
+		}
+		return best <= tolerance ? value : Double.NaN;
+	}
+
+	// Returns the number of rows
+	public int rows() {
+		return days.length;
+	}
+	// Returns the number of columns, one per series
+	public int columns() {
+		return values.length;
+	}
+	// Returns the date of the row as an epoch day
+	public int day(int row) {
+		return days[row];
+	}
+	// Returns the reading of the column on the row, NaN if it has none
+	public double value(int row, int column) {
+		return values[column][row];
+	}
+
+	/**
+	 * Writes the table as a .csv file with a Day column first
+	 * A column with no reading on a row is left empty
+	 *
+	 * @param out Where the table is written, it is not closed
+	 * @param names The header of each column
+	 */
+	public void write(Writer out, String... names) throws IOException {
+		if (names.length != values.length) throw new IllegalArgumentException("write() needs one name per column");
+		StringBuilder line = new StringBuilder("Day");
+		for (String name : names) {
+			line.append(',').append(name);
+		}
+		out.write(line.append('\n').toString());
+
+		for (int row = 0; row < days.length; row++) {
+			line.setLength(0);
+			// Written as 1880-01-15 like the OWID files
+			int month = DateKey.month(days[row]);
+			int dayOfMonth = DateKey.dayOfMonth(days[row]);
+			line.append(DateKey.year(days[row])).append(month < 10 ? "-0" : "-").append(month)
+					.append(dayOfMonth < 10 ? "-0" : "-").append(dayOfMonth);
+			for (double[] column : values) {
+				line.append(',');
+				if (!Double.isNaN(column[row])) {
+					line.append(column[row]);
+				}
+			}
+			out.write(line.append('\n').toString());
+		}
+	}
+}
@@ -0,0 +1,205 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Saves the two trees of one dataset to a binary file so the next
+ * run can rebuild them without reparsing and reconverting the .csv
+ *
+ * The file is a fixed header followed by four sorted columns:
+ *
+ *   0  int     magic number "RBTS"
+ *   4  int     format version
+ *   8  int     n, number of <date, info> entries
+ *  12  int     m, number of <info, date> entries
+ *  16  long    CRC32 of every other byte of the file, header included
+ *  24  long    IngestState of the .csv file the trees came from:
+ *              offset, fingerprint, length and last modified time
+ *  56  int[n]     dates in ascending order
+ *      double[n]  the reading of each date
+ *      double[m]  readings in ascending order, repeated for every date
+ *      int[m]     the date of each reading, in the order they were added
+ *
+ * Reading maps the file, checks the checksum and bulk loads both trees
+ * from the columns, which is linear since they are already sorted
+ * The checksum covers the IngestState too, so a damaged offset or
+ * fingerprint is never trusted as the place to resume reading from
+ * The IngestState tells the caller whether the .csv file is the same
+ * as when the snapshot was made or only has new rows added to it
+ *
+ * @author Bryce Lehnen
+ */
+public class TreeSnapshot {
+
+	private static final int MAGIC = 0x52425453;
+	private static final int VERSION = 3;
+	private static final int HEADER = 56;
+
+	private TreeSnapshot() {
+	}
+
+	/**
+	 * Writes the trees to the snapshot file. The file is written
+	 * next to the old one and then moved over it, so a run that is
+	 * stopped part way never leaves a broken snapshot behind
+	 *
+	 * @param filename The snapshot file
+	 * @param source The state of the .csv file, taken before it was read
+	 * @param byDate The <date, info> tree
+	 * @param byValue The <info, date> tree
+	 */
+	public static void write(String filename, IngestState source, IntDateKeyedRedBlackTree byDate,
+			DoubleKeyedRedBlackTree byValue) throws IOException {
+		int n = byDate.size();
+		int m = byValue.entries();
+		int[] days = new int[n];
+		double[] readings = new double[n];
+		double[] values = new double[m];
+		int[] valueDays = new int[m];
+		byDate.copyTo(days, readings);
+		byValue.copyTo(values, valueDays);
+
+		long length = (long) HEADER + 12L * n + 12L * m;
+		if (length > Integer.MAX_VALUE) throw new IOException("too many entries for a snapshot: " + n);
+		ByteBuffer buf = ByteBuffer.allocate((int) length);
+
+		buf.position(HEADER);
+		buf.asIntBuffer().put(days);
+		buf.position(HEADER + 4 * n);
+		buf.asDoubleBuffer().put(readings);
+		buf.position(HEADER + 12 * n);
+		buf.asDoubleBuffer().put(values);
+		buf.position(HEADER + 12 * n + 8 * m);
+		buf.asIntBuffer().put(valueDays);
+
+		buf.putInt(0, MAGIC);
+		buf.putInt(4, VERSION);
+		buf.putInt(8, n);
+		buf.putInt(12, m);
+		buf.putLong(24, source.offset());
+		buf.putLong(32, source.fingerprint());
+		buf.putLong(40, source.length());
+		buf.putLong(48, source.modified());
+		buf.putLong(16, Checksum(buf, (int) length));
+
+		Path target = Paths.get(filename);
+		Path temp = Paths.get(filename + ".tmp");
+		try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			buf.position(0);
+			while (buf.hasRemaining()) {
+				out.write(buf);
+			}
+		}
+		Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Returns the state of the .csv file that was saved in the
+	 * snapshot, without loading the trees
+	 *
+	 * @param filename The snapshot file
+	 * @return The state, or null if there is no snapshot
+	 * @throws IOException If the snapshot can not be read or is corrupt
+	 */
+	public static IngestState state(String filename) throws IOException {
+		if (!new File(filename).exists()) return null;
+
+		try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+			ByteBuffer buf = Open(channel, filename);
+			return new IngestState(buf.getLong(24), buf.getLong(32), buf.getLong(40), buf.getLong(48));
+		}
+	}
+
+	/**
+	 * Loads the trees from the snapshot file. The trees are
+	 * only changed if the whole snapshot is good
+	 *
+	 * @param filename The snapshot file
+	 * @param byDate Gets the <date, info> entries
+	 * @param byValue Gets the <info, date> entries
+	 * @return False if there is no snapshot
+	 * @throws IOException If the snapshot can not be read or is corrupt
+	 */
+	public static boolean read(String filename, IntDateKeyedRedBlackTree byDate,
+			DoubleKeyedRedBlackTree byValue) throws IOException {
+		if (!new File(filename).exists()) return false;
+
+		try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+			ByteBuffer buf = Open(channel, filename);
+			int n = buf.getInt(8);
+			int m = buf.getInt(12);
+
+			int[] days = new int[n];
+			double[] readings = new double[n];
+			double[] values = new double[m];
+			int[] valueDays = new int[m];
+			buf.position(HEADER);
+			buf.asIntBuffer().get(days);
+			buf.position(HEADER + 4 * n);
+			buf.asDoubleBuffer().get(readings);
+			buf.position(HEADER + 12 * n);
+			buf.asDoubleBuffer().get(values);
+			buf.position(HEADER + 12 * n + 8 * m);
+			buf.asIntBuffer().get(valueDays);
+
+			// Built on the side and only swapped in once both are good
+			IntDateKeyedRedBlackTree dates = new IntDateKeyedRedBlackTree();
+			DoubleKeyedRedBlackTree readingsByValue = byValue.Blank();
+			try {
+				dates.BulkLoad(days, readings, n);
+				readingsByValue.BulkLoad(values, valueDays, m);
+			}
+			// Out of order columns that still passed the checksum
+			catch (IllegalArgumentException e) {
+				throw new IOException("snapshot columns are not sorted: " + filename, e);
+			}
+			byDate.Replace(dates);
+			byValue.Replace(readingsByValue);
+			return true;
+		}
+	}
+
+	/**
+	 * Maps the snapshot and makes sure it is one this class wrote,
+	 * that its size matches its counts and that the checksum matches
+	 */
+	private static MappedByteBuffer Open(FileChannel channel, String filename) throws IOException {
+		long length = channel.size();
+		if (length < HEADER || length > Integer.MAX_VALUE) throw new IOException("bad snapshot size: " + filename);
+		MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+		if (buf.getInt(0) != MAGIC) throw new IOException("not a snapshot: " + filename);
+		if (buf.getInt(4) != VERSION) throw new IOException("unknown snapshot version: " + filename);
+
+		int n = buf.getInt(8);
+		int m = buf.getInt(12);
+		if (n < 0 || m < 0 || length != HEADER + 12L * n + 12L * m) {
+			throw new IOException("bad snapshot size: " + filename);
+		}
+		if (buf.getLong(16) != Checksum(buf, (int) length)) {
+			throw new IOException("snapshot checksum does not match: " + filename);
+		}
+		return buf;
+	}
+
+	// CRC32 of the first length bytes except the checksum itself at 16 to 23
+	private static long Checksum(ByteBuffer buf, int length) {
+		CRC32 crc = new CRC32();
+		ByteBuffer data = buf.duplicate();
+		data.position(0);
+		data.limit(16);
+		crc.update(data);
+		data.limit(length);
+		data.position(24);
+		crc.update(data);
+		return crc.getValue();
+	}
+}